@@ -0,0 +1,45 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import dorkbox.util.ActionHandlerLong;
+import dorkbox.util.swing.SwingActiveRender;
+
+/**
+ * The frames of the active render loop, in real time. This is the default.
+ */
+final
+class ActiveRenderFrameDriver implements FrameDriver {
+  @Override
+  public void start(final ActionHandlerLong frameStartHandler) {
+    SwingActiveRender.addActiveRenderFrameStart(frameStartHandler);
+  }
+
+  @Override
+  public void stop(final ActionHandlerLong frameStartHandler) {
+    SwingActiveRender.removeActiveRenderFrameStart(frameStartHandler);
+  }
+
+  @Override
+  public boolean isRunning(final ActionHandlerLong frameStartHandler) {
+    return SwingActiveRender.containsActiveRenderFrameStart(frameStartHandler);
+  }
+
+  @Override
+  public boolean isRealTime() {
+    return true;
+  }
+}
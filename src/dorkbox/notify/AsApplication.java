@@ -15,14 +15,8 @@
  */
 package dorkbox.notify;
 
-import dorkbox.util.SwingUtil;
-
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ComponentEvent;
-import java.awt.event.ComponentListener;
-import java.awt.event.WindowEvent;
-import java.awt.event.WindowStateListener;
 
 // this is a child to a Jframe/window (instead of globally to the screen)
 @SuppressWarnings({"Duplicates", "FieldCanBeLocal", "WeakerAccess", "DanglingJavadoc"})
@@ -33,12 +27,25 @@ class AsApplication implements INotify {
   private final NotifyCanvas notifyCanvas;
   private final JFrame appWindow;
 
-  private final ComponentListener parentListener;
-  private final WindowStateListener windowStateListener;
+  // only accessed on the swing EDT
+  private boolean closed = false;
+
+  //noinspection Convert2Lambda
+  private final Runnable closeTask = new Runnable() {
+    @Override
+    public void run() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+
+      look.close();
 
-  private static final String glassPanePrefix = "dorkbox.notify";
+      FrameRelayout.remove(appWindow, look);
 
-  private JPanel glassPane;
+      notification.onPopupClosed(AsApplication.this);
+    }
+  };
 
   // this is on the swing EDT
   @SuppressWarnings("NumericCastThatLosesPrecision")
@@ -49,64 +56,8 @@ class AsApplication implements INotify {
 
     look = new LookAndFeel(this, appWindow, notifyCanvas, notification, appWindow.getBounds(), false);
 
-    // this makes sure that our notify canvas stay anchored to the parent window (if it's hidden/shown/moved/etc)
-    parentListener = new ComponentListener() {
-      @Override
-      public void componentShown(final ComponentEvent e) {
-        look.reLayout(appWindow.getBounds());
-      }
-
-      @Override
-      public void componentHidden(final ComponentEvent e) {
-      }
-
-      @Override
-      public void componentResized(final ComponentEvent e) {
-        look.reLayout(appWindow.getBounds());
-      }
-
-      @Override
-      public void componentMoved(final ComponentEvent e) {
-      }
-    };
-
-    windowStateListener = new WindowStateListener() {
-      @Override
-      public void windowStateChanged(WindowEvent e) {
-        int state = e.getNewState();
-        if ((state & Frame.ICONIFIED) == 0) {
-          look.reLayout(appWindow.getBounds());
-        }
-      }
-    };
-
-
-    appWindow.addWindowStateListener(windowStateListener);
-    appWindow.addComponentListener(parentListener);
-
-    Component glassPane_ = appWindow.getGlassPane();
-    if (glassPane_ instanceof JPanel) {
-      glassPane = (JPanel) glassPane_;
-      String name = glassPane.getName();
-
-      if (!name.equals(glassPanePrefix)) {
-        // We just tweak the already existing glassPane, instead of replacing it with our own
-        // glassPane = new JPanel();
-        glassPane.setLayout(null);
-        glassPane.setName(glassPanePrefix);
-        // glassPane.setSize(appWindow.getSize());
-        // glassPane.setOpaque(false);
-        // appWindow.setGlassPane(glassPane);
-      }
-
-      glassPane.add(notifyCanvas);
-
-      if (!glassPane.isVisible()) {
-        glassPane.setVisible(true);
-      }
-    } else {
-      System.err.println("Not able to add notification to custom glassPane");
-    }
+    // this makes sure that our notify canvas stay anchored to the parent window (if it's hidden/shown/moved/etc), and paints it
+    notifyCanvas.overlay = FrameRelayout.add(appWindow, look);
   }
 
   @Override
@@ -135,32 +86,6 @@ class AsApplication implements INotify {
   @Override
   public void close() {
     // this must happen in the Swing EDT. This is usually called by the active renderer
-    SwingUtil.invokeLater(new Runnable() {
-      @Override
-      public void run() {
-        look.close();
-
-        glassPane.remove(notifyCanvas);
-
-        appWindow.removeWindowStateListener(windowStateListener);
-        appWindow.removeComponentListener(parentListener);
-
-        boolean found = false;
-        Component[] components = glassPane.getComponents();
-        for (Component component : components) {
-          if (component instanceof NotifyCanvas) {
-            found = true;
-            break;
-          }
-        }
-
-        if (!found) {
-          // hide the glass pane if there are no more notifications on it.
-          glassPane.setVisible(false);
-        }
-
-        notification.onClose();
-      }
-    });
+    NotifyCommands.close(this, closeTask);
   }
 }
@@ -15,9 +15,6 @@
  */
 package dorkbox.notify;
 
-import dorkbox.util.ScreenUtil;
-import dorkbox.util.SwingUtil;
-
 import javax.swing.*;
 import java.awt.*;
 
@@ -31,6 +28,28 @@ class AsDesktop extends JWindow implements INotify {
   private final LookAndFeel look;
   private final Notify notification;
 
+  // only accessed on the swing EDT
+  private boolean closed = false;
+
+  //noinspection Convert2Lambda
+  private final Runnable closeTask = new Runnable() {
+    @Override
+    public void run() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+
+      doHide();
+      look.close();
+
+      removeAll();
+      dispose();
+
+      notification.onPopupClosed(AsDesktop.this);
+    }
+  };
+
 
   // this is on the swing EDT
   @SuppressWarnings("NumericCastThatLosesPrecision")
@@ -39,45 +58,17 @@ class AsDesktop extends JWindow implements INotify {
 
     setAlwaysOnTop(true);
 
-    final Dimension preferredSize = new Dimension(WIDTH, HEIGHT);
-    setPreferredSize(preferredSize);
-    setMaximumSize(preferredSize);
-    setMinimumSize(preferredSize);
-    setSize(NotifyCanvas.WIDTH, NotifyCanvas.HEIGHT);
+    setHeight(notification.height);
     setLocation(Short.MIN_VALUE, Short.MIN_VALUE);
 
-    Rectangle bounds;
-    GraphicsDevice device;
-
-    if (notification.screenNumber == Short.MIN_VALUE) {
-      // set screen position based on mouse
-      Point mouseLocation = MouseInfo.getPointerInfo()
-              .getLocation();
-
-      device = ScreenUtil.getMonitorAtLocation(mouseLocation);
-    } else {
-      // set screen position based on specified screen
-      int screenNumber = notification.screenNumber;
-      GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-      GraphicsDevice screenDevices[] = ge.getScreenDevices();
-
-      if (screenNumber < 0) {
-        screenNumber = 0;
-      } else if (screenNumber > screenDevices.length - 1) {
-        screenNumber = screenDevices.length - 1;
-      }
-
-      device = screenDevices[screenNumber];
-    }
-
-    bounds = device.getDefaultConfiguration()
-            .getBounds();
+    // the monitor geometry is cached, so the only round trip here is for the mouse location
+    ScreenGeometry.Screen screen = ScreenGeometry.getScreenForNotification(notification.screenNumber);
 
 
     NotifyCanvas notifyCanvas = new NotifyCanvas(this, notification, image, theme);
     getContentPane().add(notifyCanvas);
 
-    look = new LookAndFeel(this, this, notifyCanvas, notification, bounds, true);
+    look = new LookAndFeel(this, this, notifyCanvas, notification, screen.bounds, true);
   }
 
   @Override
@@ -117,25 +108,28 @@ class AsDesktop extends JWindow implements INotify {
     }
   }
 
+  // the notification can change it's height while it is showing
+  void setHeight(final int height) {
+    final Dimension preferredSize = new Dimension(NotifyCanvas.WIDTH, height);
+    setPreferredSize(preferredSize);
+    setMaximumSize(preferredSize);
+    setMinimumSize(preferredSize);
+    setSize(NotifyCanvas.WIDTH, height);
+  }
+
   // setVisible(false) with any extra logic
   void doHide() {
     super.setVisible(false);
   }
 
+  // setVisible(true) with any extra logic
+  void doShow() {
+    super.setVisible(true);
+  }
+
   @Override
   public void close() {
     // this must happen in the Swing EDT. This is usually called by the active renderer
-    SwingUtil.invokeLater(new Runnable() {
-      @Override
-      public void run() {
-        doHide();
-        look.close();
-
-        removeAll();
-        dispose();
-
-        notification.onClose();
-      }
-    });
+    NotifyCommands.close(this, closeTask);
   }
 }
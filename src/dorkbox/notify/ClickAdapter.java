@@ -28,4 +28,25 @@ class ClickAdapter extends MouseAdapter {
     INotify parent = ((NotifyCanvas) e.getSource()).parent;
     parent.onClick(e.getX(), e.getY());
   }
+
+  // the hover state of the close button is only updated by these, so painting never has to ask where the mouse is
+  @Override
+  public void mouseEntered(final MouseEvent e) {
+    ((NotifyCanvas) e.getSource()).setMousePosition(e.getPoint());
+  }
+
+  @Override
+  public void mouseMoved(final MouseEvent e) {
+    ((NotifyCanvas) e.getSource()).setMousePosition(e.getPoint());
+  }
+
+  @Override
+  public void mouseDragged(final MouseEvent e) {
+    ((NotifyCanvas) e.getSource()).setMousePosition(e.getPoint());
+  }
+
+  @Override
+  public void mouseExited(final MouseEvent e) {
+    ((NotifyCanvas) e.getSource()).setMousePosition(null);
+  }
 }
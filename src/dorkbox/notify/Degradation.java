@@ -0,0 +1,48 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+/**
+ * How much of the work of the notifications is skipped, because the swing EDT (or the render loop) is overloaded. Every level also
+ * includes the levels before it. See {@link Notify#getDegradation()} and {@link Notify#DEGRADE_LATENCY_MILLIS}.
+ */
+public
+enum Degradation {
+  /**
+   * everything is done at full quality
+   */
+  FULL,
+
+  /**
+   * popups are rendered with the faster (lower quality) rendering hints
+   */
+  LOW_QUALITY,
+
+  /**
+   * popups do not shake
+   */
+  NO_SHAKE,
+
+  /**
+   * popups move to their new place instantly, instead of sliding there
+   */
+  INSTANT_MOVES,
+
+  /**
+   * popups are animated on every other frame
+   */
+  REDUCED_FRAME_RATE,
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import dorkbox.util.ActionHandlerLong;
+
+import java.awt.*;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how long it takes for the swing EDT to run a task (every {@link #PROBE_MILLIS}), and how much work the frames of the render loop
+ * take (updating the animations, and painting the popups), while popups are showing. When either is over
+ * {@link Notify#DEGRADE_LATENCY_MILLIS}, the degradation level is raised by one. When both have been under half of it for a while, the level
+ * is lowered by one.
+ * <p>
+ * The time between frames is not measured, because that is mostly the frame rate of the render loop. Nothing is measured while the frames
+ * are not in real time (see {@link FrameDriver#isRealTime()}).
+ */
+final
+class EdtLoadMonitor {
+  private static final int PROBE_MILLIS = 250;
+
+  // how many probes in a row must be calm before the level is lowered
+  private static final int CALM_PROBES = 8;
+
+  private static volatile Degradation level = Degradation.FULL;
+
+  // only accessed while holding the class lock
+  private static Timer timer = null;
+  private static int calmProbes = 0;
+
+  private static volatile boolean probePending = false;
+  private static volatile long probePostedNanos = 0L;
+
+  private static volatile boolean running = false;
+
+  // smoothed work per frame, only written by the frame driver
+  private static volatile float frameMillis = 0.0F;
+
+  // told the work of every measured frame (for example by the load test). Called by the frame driver
+  private static volatile ActionHandlerLong frameListener = null;
+
+  // painting since the start of the previous frame. The popups are painted by the render thread, and attached ones by the EDT
+  private static final AtomicLong paintNanos = new AtomicLong();
+
+  //noinspection Convert2Lambda
+  private static final Runnable probe = new Runnable() {
+    @Override
+    public void run() {
+      long latency = System.nanoTime() - probePostedNanos;
+      probePending = false;
+      measured(latency);
+    }
+  };
+
+  private
+  EdtLoadMonitor() {
+  }
+
+  /**
+   * Starts measuring (if it is enabled). Called when the popups start animating.
+   */
+  static synchronized void start() {
+    if (timer != null || Notify.DEGRADE_LATENCY_MILLIS <= 0) {
+      return;
+    }
+
+    paintNanos.set(0L);
+    running = true;
+
+    timer = new Timer("Notify Load Monitor", true);
+    timer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        if (probePending) {
+          // the previous probe hasn't even run yet, so the EDT is (at least) this far behind
+          measured(System.nanoTime() - probePostedNanos);
+        } else {
+          probePending = true;
+          probePostedNanos = System.nanoTime();
+          EventQueue.invokeLater(probe);
+        }
+      }
+    }, PROBE_MILLIS, PROBE_MILLIS);
+  }
+
+  /**
+   * Stops measuring, and goes back to full quality. Called when there are no more popups.
+   */
+  static synchronized void stop() {
+    running = false;
+
+    if (timer != null) {
+      timer.cancel();
+      timer = null;
+    }
+
+    probePending = false;
+    calmProbes = 0;
+    frameMillis = 0.0F;
+    level = Degradation.FULL;
+  }
+
+  /**
+   * The frame handler finished, after working for this long. The popups painted since the previous frame are part of it's work.
+   */
+  static void frame(final long workInNanos) {
+    if (!running) {
+      return;
+    }
+
+    long work = workInNanos + paintNanos.getAndSet(0L);
+
+    float millis = frameMillis;
+    frameMillis = millis + (work / 1.0E6F - millis) / 8.0F;
+
+    ActionHandlerLong listener = frameListener;
+    if (listener != null) {
+      listener.handle(work);
+    }
+  }
+
+  /**
+   * Sets (or removes, with null) the listener that is told the work (in nanoseconds) of every frame that is measured
+   */
+  static void setFrameListener(final ActionHandlerLong listener) {
+    frameListener = listener;
+  }
+
+  /**
+   * A popup was painted, which took this long
+   */
+  static void painted(final long paintInNanos) {
+    if (running) {
+      paintNanos.addAndGet(paintInNanos);
+    }
+  }
+
+  /**
+   * @return true if the load is being measured
+   */
+  static boolean isRunning() {
+    return running;
+  }
+
+  static Degradation getLevel() {
+    return level;
+  }
+
+  /**
+   * @return true if the current level is the specified one (or worse)
+   */
+  static boolean isAtLeast(final Degradation degradation) {
+    return level.ordinal() >= degradation.ordinal();
+  }
+
+  private static synchronized void measured(final long latencyInNanos) {
+    if (timer == null) {
+      return;
+    }
+
+    float threshold = Notify.DEGRADE_LATENCY_MILLIS;
+    float load = Math.max(latencyInNanos / 1.0E6F, frameMillis);
+
+    Degradation[] levels = Degradation.values();
+    int ordinal = level.ordinal();
+
+    if (load > threshold) {
+      calmProbes = 0;
+      if (ordinal < levels.length - 1) {
+        level = levels[ordinal + 1];
+      }
+    } else if (load < threshold / 2.0F) {
+      if (++calmProbes >= CALM_PROBES) {
+        calmProbes = 0;
+        if (ordinal > 0) {
+          level = levels[ordinal - 1];
+        }
+      }
+    } else {
+      calmProbes = 0;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import dorkbox.util.ActionHandlerLong;
+
+/**
+ * Calls the frame start handler (which advances the animations, and the countdown of the popups) once per frame, with the time since the
+ * previous frame. All of the timing of the popups comes from this, so replacing it (see {@link ManualFrameDriver}) replaces the clock.
+ */
+interface FrameDriver {
+  /**
+   * Starts calling the handler once per frame
+   */
+  void start(ActionHandlerLong frameStartHandler);
+
+  /**
+   * Stops calling the handler
+   */
+  void stop(ActionHandlerLong frameStartHandler);
+
+  /**
+   * @return true if the handler is being called
+   */
+  boolean isRunning(ActionHandlerLong frameStartHandler);
+
+  /**
+   * @return true if the frames happen in real time. Only then is the load of the swing EDT measured (see {@link EdtLoadMonitor})
+   */
+  boolean isRealTime();
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import dorkbox.util.swing.SwingActiveRender;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.WindowEvent;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the notifications of an application window anchored to it (when it is shown, resized or restored), and paints all of them with a
+ * single overlay in the glass pane of the window (see {@link NotifyOverlay}).
+ * <p>
+ * There is a single listener and overlay per window (no matter how many notifications are attached to it), and the storm of events from
+ * (for example) dragging the border of the window is coalesced into at most one relayout of all of it's notifications per frame. Attaching
+ * or removing a notification does not change the component hierarchy.
+ * <p>
+ * The registry only holds windows weakly, but that is only a safety net: the overlay references it's window through the glass pane (and the
+ * popups reference their window) until they are removed. So the notifications of a window are closed when the window is hidden (which is
+ * what closing it does by default) or disposed, and the entry of a window is removed along with it's last notification.
+ * <p>
+ * Everything here is only accessed on the swing EDT.
+ */
+final
+class FrameRelayout {
+  // one animation frame
+  private static final int DELAY_MILLIS = 16;
+
+  private static final String glassPanePrefix = "dorkbox.notify";
+
+  private static final Map<JFrame, FrameRelayout> frames = new WeakHashMap<JFrame, FrameRelayout>();
+
+  /**
+   * The notification is attached to the application window
+   *
+   * @return the overlay that paints the notification
+   */
+  static NotifyOverlay add(final JFrame appWindow, final LookAndFeel look) {
+    FrameRelayout relayout = frames.get(appWindow);
+    if (relayout == null) {
+      relayout = new FrameRelayout(appWindow);
+      frames.put(appWindow, relayout);
+    }
+
+    if (relayout.looks.add(look) && !look.isInstant()) {
+      relayout.startRendering();
+    }
+    return relayout.overlay;
+  }
+
+  /**
+   * The notification is no longer attached to the application window
+   */
+  static void remove(final JFrame appWindow, final LookAndFeel look) {
+    FrameRelayout relayout = frames.get(appWindow);
+    if (relayout == null) {
+      return;
+    }
+
+    if (relayout.looks.remove(look)) {
+      // the overlay only repaints by itself while it is actively rendered
+      look.getCanvas().repaintArea();
+
+      if (!look.isInstant()) {
+        relayout.stopRendering();
+      }
+    }
+
+    if (relayout.looks.isEmpty()) {
+      frames.remove(appWindow);
+      relayout.uninstall(appWindow);
+    }
+  }
+
+  /**
+   * @return how many windows have notifications attached to them
+   */
+  static int getFrameCount() {
+    return frames.size();
+  }
+
+
+  // the window is the key of the (weak) frames map, so it must not be strongly referenced from here
+  private final WeakReference<JFrame> appWindow;
+
+  // the overlay paints these on the active render thread, so adding and removing them must not interfere with that
+  private final Set<LookAndFeel> looks = Collections.newSetFromMap(new ConcurrentHashMap<LookAndFeel, Boolean>());
+
+  private final NotifyOverlay overlay;
+
+  // how many of the notifications animate. Only then is the overlay actively rendered
+  private int animated = 0;
+
+  private JPanel glassPane = null;
+  private boolean glassPaneWasVisible = false;
+
+  private final ComponentAdapter componentListener;
+  private final java.awt.event.WindowAdapter windowListener;
+  private final Timer timer;
+
+  private
+  FrameRelayout(final JFrame appWindow) {
+    this.appWindow = new WeakReference<JFrame>(appWindow);
+
+    //noinspection Convert2Lambda
+    timer = new Timer(DELAY_MILLIS, new ActionListener() {
+      @Override
+      public void actionPerformed(final ActionEvent e) {
+        JFrame appWindow = FrameRelayout.this.appWindow.get();
+        if (appWindow != null) {
+          resizeOverlay();
+          LookAndFeel.reLayout(looks, appWindow.getBounds());
+        }
+      }
+    });
+    timer.setRepeats(false);
+    timer.setCoalesce(true);
+
+    // this makes sure that our notify canvas stay anchored to the parent window (if it's hidden/shown/moved/etc)
+    componentListener = new ComponentAdapter() {
+      @Override
+      public void componentShown(final ComponentEvent e) {
+        schedule();
+      }
+
+      @Override
+      public void componentResized(final ComponentEvent e) {
+        schedule();
+      }
+
+      @Override
+      public void componentHidden(final ComponentEvent e) {
+        // for example, closed with HIDE_ON_CLOSE (which is the default). It might never be disposed, so it's notifications are closed now
+        dismissAll();
+      }
+    };
+
+    windowListener = new java.awt.event.WindowAdapter() {
+      @Override
+      public void windowStateChanged(WindowEvent e) {
+        int state = e.getNewState();
+        if ((state & Frame.ICONIFIED) == 0) {
+          schedule();
+        }
+      }
+
+      @Override
+      public void windowClosed(final WindowEvent e) {
+        // the window was disposed, so it's notifications go with it
+        dismissAll();
+      }
+    };
+
+    appWindow.addWindowStateListener(windowListener);
+    appWindow.addWindowListener(windowListener);
+    appWindow.addComponentListener(componentListener);
+
+    overlay = new NotifyOverlay(looks);
+
+    Component glassPane_ = appWindow.getGlassPane();
+    if (glassPane_ instanceof JPanel) {
+      glassPane = (JPanel) glassPane_;
+      String name = glassPane.getName();
+
+      if (!glassPanePrefix.equals(name)) {
+        // We just tweak the already existing glassPane, instead of replacing it with our own
+        glassPane.setLayout(null);
+        glassPane.setName(glassPanePrefix);
+      }
+
+      glassPane.add(overlay);
+      resizeOverlay();
+
+      glassPaneWasVisible = glassPane.isVisible();
+      if (!glassPaneWasVisible) {
+        glassPane.setVisible(true);
+      }
+    } else {
+      System.err.println("Not able to add notification to custom glassPane");
+    }
+
+  }
+
+  // closing them also removes them from here, and the last one uninstalls everything from the window
+  private void dismissAll() {
+    for (LookAndFeel look : new ArrayList<LookAndFeel>(looks)) {
+      look.dismiss();
+    }
+  }
+
+  // the overlay is what keeps the notifications of this window animating
+  private void startRendering() {
+    if (animated++ == 0) {
+      SwingActiveRender.addActiveRender(overlay);
+
+      // active rendering ignores repaints, but the overlay is lightweight, so it is only ever painted by swing
+      overlay.setIgnoreRepaint(false);
+    }
+  }
+
+  private void stopRendering() {
+    if (--animated == 0) {
+      SwingActiveRender.removeActiveRender(overlay);
+    }
+  }
+
+  private void resizeOverlay() {
+    if (glassPane != null) {
+      overlay.setBounds(0, 0, glassPane.getWidth(), glassPane.getHeight());
+    }
+  }
+
+  // every event until the timer fires is handled by the same relayout
+  private void schedule() {
+    if (!timer.isRunning()) {
+      timer.start();
+    }
+  }
+
+  private void uninstall(final JFrame appWindow) {
+    timer.stop();
+    appWindow.removeWindowStateListener(windowListener);
+    appWindow.removeWindowListener(windowListener);
+    appWindow.removeComponentListener(componentListener);
+
+    if (animated > 0) {
+      animated = 0;
+      SwingActiveRender.removeActiveRender(overlay);
+    }
+
+    if (glassPane != null) {
+      glassPane.remove(overlay);
+
+      if (!glassPaneWasVisible) {
+        // hide the glass pane if there are no more notifications on it.
+        glassPane.setVisible(false);
+      } else {
+        glassPane.repaint();
+      }
+    }
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import dorkbox.util.ImageUtil;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Scales the images of notifications to the size of a notification icon (see {@link Notify#getImageSize()}), keeping the aspect ratio and
+ * centering it in a square, in a single pass.
+ * <p>
+ * The icons are cached by the identity of the image (for as long as the image exists, and only for images that cannot be drawn into), and
+ * by it's content (a 64 bit hash of the pixels and the size), so the same image (or an identical copy of it, for example the same avatar
+ * decoded again) is only ever scaled once, and every notification with it shares the same icon.
+ */
+final
+class IconScaler {
+  // the most recently used icons, by content
+  private static final int MAX_CACHED = 256;
+
+  private static final Object lock = new Object();
+
+  // only accessed while holding the lock
+  private static final Map<Image, ImageIcon> byIdentity = new WeakHashMap<Image, ImageIcon>();
+  private static final Map<ContentKey, ImageIcon> byContent = new LinkedHashMap<ContentKey, ImageIcon>(16, 0.75F, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<ContentKey, ImageIcon> eldest) {
+      return size() > MAX_CACHED;
+    }
+  };
+
+  private static final
+  class ContentKey {
+    final int width;
+    final int height;
+    final long hash;
+
+    ContentKey(final int width, final int height, final long hash) {
+      this.width = width;
+      this.height = height;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ContentKey)) {
+        return false;
+      }
+
+      ContentKey other = (ContentKey) o;
+      return width == other.width && height == other.height && hash == other.hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (hash ^ (hash >>> 32));
+    }
+  }
+
+  private
+  IconScaler() {
+  }
+
+  /**
+   * @return the icon for the image, scaled (and centered) to the size of a notification icon
+   */
+  static ImageIcon getIcon(final Image image) {
+    // an image that can be drawn into again (and passed again) is always looked up by it's content
+    final boolean immutable = isImmutable(image);
+
+    ImageIcon icon;
+    if (immutable) {
+      synchronized (lock) {
+        icon = byIdentity.get(image);
+      }
+      if (icon != null) {
+        return icon;
+      }
+    }
+
+    Image imageImmediate = ImageUtil.getImageImmediate(image);
+    BufferedImage source;
+    if (imageImmediate instanceof BufferedImage) {
+      source = (BufferedImage) imageImmediate;
+    } else {
+      source = ImageUtil.getBufferedImage(imageImmediate);
+    }
+
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int[] row = new int[width];
+
+    ContentKey key = new ContentKey(width, height, hash(source, row));
+    synchronized (lock) {
+      icon = byContent.get(key);
+    }
+
+    if (icon == null) {
+      icon = new ImageIcon(scale(source, row, Notify.getImageSize()));
+    }
+
+    synchronized (lock) {
+      // if another thread scaled the same image at the same time, the first one is shared
+      ImageIcon existing = byContent.get(key);
+      if (existing != null) {
+        icon = existing;
+      } else {
+        byContent.put(key, icon);
+      }
+
+      if (immutable) {
+        byIdentity.put(image, icon);
+      }
+    }
+
+    return icon;
+  }
+
+  // images from the toolkit (loaded from a file, url, etc) never change. Buffered and volatile images can be drawn into at any time
+  private static boolean isImmutable(final Image image) {
+    return !(image instanceof BufferedImage) && !(image instanceof VolatileImage);
+  }
+
+  // FNV-1a, over every pixel
+  private static long hash(final BufferedImage source, final int[] row) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    long hash = 0xcbf29ce484222325L;
+
+    for (int y = 0; y < height; y++) {
+      source.getRGB(0, y, width, 1, row, 0, width);
+      for (int x = 0; x < width; x++) {
+        hash ^= row[x];
+        hash *= 0x100000001b3L;
+      }
+    }
+
+    return hash;
+  }
+
+  /**
+   * The longest side of the image is scaled to the size, and the image is centered in a square of that size.
+   */
+  private static BufferedImage scale(final BufferedImage source, final int[] row, final int size) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+
+    int scaledWidth;
+    int scaledHeight;
+    if (width > height) {
+      scaledWidth = size;
+      scaledHeight = Math.max(1, (int) Math.round(height * (double) size / width));
+    } else {
+      scaledHeight = size;
+      scaledWidth = Math.max(1, (int) Math.round(width * (double) size / height));
+    }
+
+    int offsetX = (size - scaledWidth) / 2;
+    int offsetY = (size - scaledHeight) / 2;
+
+    BufferedImage icon = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+
+    if (width < scaledWidth || height < scaledHeight) {
+      // smaller images are scaled up (interpolated) while they are drawn
+      Graphics2D g2 = icon.createGraphics();
+      try {
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2.drawImage(source, offsetX, offsetY, scaledWidth, scaledHeight, null);
+      } finally {
+        g2.dispose();
+      }
+      return icon;
+    }
+
+    // larger images are scaled down by averaging every source pixel into the pixel it falls in (weighted by alpha, so that transparent
+    // pixels do not darken the edges), which reads the source only once
+    int pixels = scaledWidth * scaledHeight;
+    long[] alpha = new long[pixels];
+    long[] red = new long[pixels];
+    long[] green = new long[pixels];
+    long[] blue = new long[pixels];
+    int[] count = new int[pixels];
+
+    for (int y = 0; y < height; y++) {
+      source.getRGB(0, y, width, 1, row, 0, width);
+      int targetRow = (int) ((long) y * scaledHeight / height) * scaledWidth;
+
+      for (int x = 0; x < width; x++) {
+        int argb = row[x];
+        int index = targetRow + (int) ((long) x * scaledWidth / width);
+        int a = argb >>> 24;
+
+        alpha[index] += a;
+        red[index] += ((argb >> 16) & 0xFF) * a;
+        green[index] += ((argb >> 8) & 0xFF) * a;
+        blue[index] += (argb & 0xFF) * a;
+        count[index]++;
+      }
+    }
+
+    int[] scaled = new int[pixels];
+    for (int i = 0; i < pixels; i++) {
+      long a = alpha[i];
+      if (a > 0) {
+        scaled[i] = (int) (a / count[i]) << 24 | (int) (red[i] / a) << 16 | (int) (green[i] / a) << 8 | (int) (blue[i] / a);
+      }
+    }
+
+    icon.setRGB(offsetX, offsetY, scaledWidth, scaledHeight, scaled, 0, scaledWidth);
+    return icon;
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal JSON reader, so that the notification server does not need any extra dependencies.
+ * <p>
+ * Objects are read as a {@link Map}, arrays as a {@link List}, numbers as a {@link Double}, and the rest as {@link String},
+ * {@link Boolean} or null.
+ */
+final
+class JsonReader {
+  private static final int MAX_DEPTH = 16;
+
+  private final String json;
+  private int index = 0;
+
+  static Object read(final String json) throws IllegalArgumentException {
+    JsonReader reader = new JsonReader(json);
+    Object value = reader.readValue(0);
+
+    reader.skipWhitespace();
+    if (reader.index != json.length()) {
+      throw reader.error("Unexpected trailing characters");
+    }
+
+    return value;
+  }
+
+  private
+  JsonReader(final String json) {
+    this.json = json;
+  }
+
+  private Object readValue(final int depth) {
+    if (depth > MAX_DEPTH) {
+      throw error("Too deeply nested");
+    }
+
+    skipWhitespace();
+    if (index >= json.length()) {
+      throw error("Unexpected end of input");
+    }
+
+    char c = json.charAt(index);
+    switch (c) {
+      case '{':
+        return readObject(depth);
+      case '[':
+        return readArray(depth);
+      case '"':
+        return readString();
+      case 't':
+        expect("true");
+        return Boolean.TRUE;
+      case 'f':
+        expect("false");
+        return Boolean.FALSE;
+      case 'n':
+        expect("null");
+        return null;
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          return readNumber();
+        }
+        throw error("Unexpected character '" + c + "'");
+    }
+  }
+
+  private Map<String, Object> readObject(final int depth) {
+    Map<String, Object> map = new LinkedHashMap<String, Object>();
+    index++; // {
+
+    skipWhitespace();
+    if (peek() == '}') {
+      index++;
+      return map;
+    }
+
+    while (true) {
+      skipWhitespace();
+      if (peek() != '"') {
+        throw error("Expected a key");
+      }
+      String key = readString();
+
+      skipWhitespace();
+      if (peek() != ':') {
+        throw error("Expected ':'");
+      }
+      index++;
+
+      map.put(key, readValue(depth + 1));
+
+      skipWhitespace();
+      char c = peek();
+      index++;
+      if (c == '}') {
+        return map;
+      }
+      if (c != ',') {
+        throw error("Expected ',' or '}'");
+      }
+    }
+  }
+
+  private List<Object> readArray(final int depth) {
+    List<Object> list = new ArrayList<Object>();
+    index++; // [
+
+    skipWhitespace();
+    if (peek() == ']') {
+      index++;
+      return list;
+    }
+
+    while (true) {
+      list.add(readValue(depth + 1));
+
+      skipWhitespace();
+      char c = peek();
+      index++;
+      if (c == ']') {
+        return list;
+      }
+      if (c != ',') {
+        throw error("Expected ',' or ']'");
+      }
+    }
+  }
+
+  private String readString() {
+    StringBuilder builder = new StringBuilder();
+    index++; // "
+
+    while (true) {
+      if (index >= json.length()) {
+        throw error("Unterminated string");
+      }
+
+      char c = json.charAt(index++);
+      if (c == '"') {
+        return builder.toString();
+      }
+
+      if (c != '\\') {
+        builder.append(c);
+        continue;
+      }
+
+      if (index >= json.length()) {
+        throw error("Unterminated string");
+      }
+
+      c = json.charAt(index++);
+      switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+          builder.append(c);
+          break;
+        case 'b':
+          builder.append('\b');
+          break;
+        case 'f':
+          builder.append('\f');
+          break;
+        case 'n':
+          builder.append('\n');
+          break;
+        case 'r':
+          builder.append('\r');
+          break;
+        case 't':
+          builder.append('\t');
+          break;
+        case 'u':
+          if (index + 4 > json.length()) {
+            throw error("Invalid unicode escape");
+          }
+          try {
+            builder.append((char) Integer.parseInt(json.substring(index, index + 4), 16));
+          } catch (NumberFormatException e) {
+            throw error("Invalid unicode escape");
+          }
+          index += 4;
+          break;
+        default:
+          throw error("Invalid escape '\\" + c + "'");
+      }
+    }
+  }
+
+  private Double readNumber() {
+    int start = index;
+    while (index < json.length()) {
+      char c = json.charAt(index);
+      if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+        index++;
+      } else {
+        break;
+      }
+    }
+
+    try {
+      return Double.valueOf(json.substring(start, index));
+    } catch (NumberFormatException e) {
+      throw error("Invalid number");
+    }
+  }
+
+  private void expect(final String word) {
+    if (!json.startsWith(word, index)) {
+      throw error("Expected '" + word + "'");
+    }
+    index += word.length();
+  }
+
+  private char peek() {
+    if (index >= json.length()) {
+      throw error("Unexpected end of input");
+    }
+    return json.charAt(index);
+  }
+
+  private void skipWhitespace() {
+    while (index < json.length()) {
+      char c = json.charAt(index);
+      if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+        index++;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private IllegalArgumentException error(final String message) {
+    return new IllegalArgumentException(message + " at position " + index);
+  }
+}
@@ -18,54 +18,105 @@ package dorkbox.notify;
 import dorkbox.tweenEngine.*;
 import dorkbox.util.ActionHandler;
 import dorkbox.util.ActionHandlerLong;
-import dorkbox.util.ScreenUtil;
 import dorkbox.util.swing.SwingActiveRender;
 
+import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @SuppressWarnings({"FieldCanBeLocal"})
-class LookAndFeel {
+class LookAndFeel extends StackEntry {
   private static final Map<String, PopupList> popups = new HashMap<String, PopupList>();
 
-  static final TweenEngine animation = TweenEngine.create()
-          .unsafe()  // access is only from a single thread ever, so unsafe is preferred.
-          .build();
+  /**
+   * The tween engine is only created when it is first used (the first time a notification animates), and not when this class is loaded.
+   */
+  private static final
+  class Animation {
+    static final TweenEngine engine = TweenEngine.create()
+            .unsafe()  // access is only from a single thread ever, so unsafe is preferred.
+            .build();
+
+    static final NotifyAccessor accessor = new NotifyAccessor();
+
+    // calling this initializes the class
+    static void load() {
+    }
+  }
 
-  static final NotifyAccessor accessor = new NotifyAccessor();
   private static final ActionHandlerLong frameStartHandler;
 
+  // where the frames (and so all of the timing) come from
+  private static volatile FrameDriver frameDriver = new ActiveRenderFrameDriver();
+
+  // the positions where popups never move or animate (see Notify.INSTANT_LAYOUT). This is per position, so it is shared by every stack
+  // (screen or application window) at that position
+  private static final Set<Pos> instantPositions = Collections.newSetFromMap(new ConcurrentHashMap<Pos, Boolean>());
+
+  // how many of the showing popups animate. Only then are frames needed. Only accessed on the swing EDT
+  private static int animatedPopups = 0;
+
+  // how many of the stacks are on the desktop (the screen geometry only matters while there are any). Only accessed while holding the
+  // popups lock
+  private static int desktopStacks = 0;
+
+  // copy-on-write, so the render thread never has to lock the popups
+  private static volatile StackAnimator[] animators = new StackAnimator[0];
+
 
   static {
     // this is for updating the tween engine during active-rendering
     frameStartHandler = new ActionHandlerLong() {
+      // when the frame rate is reduced, the time of the skipped frame is added to the next one
+      private long skippedNanos = 0L;
+
       @Override
-      public void handle(final long deltaInNanos) {
-        LookAndFeel.animation.update(deltaInNanos);
+      public void handle(long deltaInNanos) {
+        if (EdtLoadMonitor.isAtLeast(Degradation.REDUCED_FRAME_RATE)) {
+          if (skippedNanos == 0L) {
+            skippedNanos = deltaInNanos;
+            EdtLoadMonitor.frame(0L);
+            return;
+          }
+
+          deltaInNanos += skippedNanos;
+        }
+        skippedNanos = 0L;
+
+        // only the work of the frame is measured (not the time between frames, which is mostly the frame rate)
+        long start = System.nanoTime();
+
+        Animation.engine.update(deltaInNanos);
+
+        // every stack moves all of it's popups in a single step
+        for (StackAnimator animator : animators) {
+          animator.step(deltaInNanos);
+        }
+
+        EdtLoadMonitor.frame(System.nanoTime() - start);
       }
     };
   }
 
-  static final int SPACER = 10;
-  static final int MARGIN = 20;
-
   private static final java.awt.event.WindowAdapter windowListener = new WindowAdapter();
   private static final MouseAdapter mouseListener = new ClickAdapter();
 
   private static final Random RANDOM = new Random();
 
-  private static final float MOVE_DURATION = Notify.MOVE_DURATION;
   private final boolean isDesktopNotification;
 
 
-  private volatile int anchorX;
-  private volatile int anchorY;
-
-
   private final INotify notify;
   private final Window parent;
   private final NotifyCanvas notifyCanvas;
@@ -74,55 +125,80 @@ class LookAndFeel {
   private final Pos position;
 
   // this is used in combination with position, so that we can track which screen and what position a popup is in
-  private final String idAndPosition;
+  private String idAndPosition;
   private int popupIndex;
 
-  private volatile Tween tween = null;
+  // has this popup been placed in it's slot yet?
+  private boolean isPlaced = false;
+
+  // queued popups are hidden until there is room for them in the stack
+  private boolean queued = false;
+
+  // only valid for desktop notifications. Changes when it's monitor is removed (and the popup moves to a different one)
+  private int screenNumber;
+
   private volatile Tween hideTween = null;
 
-  private final ActionHandler<Notify> onGeneralAreaClickAction;
+  // never moves or animates, see Notify.INSTANT_LAYOUT
+  private final boolean instant;
+
+  // hides instant popups, instead of the hide tween
+  private Timer hideTimer = null;
+
+  // is this popup counted in the animated popups?
+  private boolean animated = false;
+
+  private final Notify notification;
 
   LookAndFeel(final INotify notify, final Window parent,
               final NotifyCanvas notifyCanvas,
               final Notify notification,
               final Rectangle parentBounds,
               final boolean isDesktopNotification) {
+    super(notification.priority.ordinal(), notification.height);
 
     this.notify = notify;
     this.parent = parent;
     this.notifyCanvas = notifyCanvas;
     this.isDesktopNotification = isDesktopNotification;
 
+    // so the notification can update it's content while it is showing
+    notification.look = this;
+
 
     if (isDesktopNotification) {
       parent.addWindowListener(windowListener);
     }
     notifyCanvas.addMouseListener(mouseListener);
+    notifyCanvas.addMouseMotionListener(mouseListener);
 
     hideAfterDurationInSeconds = notification.hideAfterDurationInMillis / 1000.0F;
     position = notification.position;
+    instant = Notify.INSTANT_LAYOUT || instantPositions.contains(position);
 
-    if (notification.onGeneralAreaClickAction != null) {
-      onGeneralAreaClickAction = new ActionHandler<Notify>() {
-        @Override
-        public void handle(final Notify value) {
-          notification.onGeneralAreaClickAction.handle(notification);
-        }
-      };
-    } else {
-      onGeneralAreaClickAction = null;
-    }
+    // nothing repaints it on every frame
+    notifyCanvas.passive = instant;
+
+    this.notification = notification;
 
     if (isDesktopNotification) {
-      Point point = new Point((int) parentBounds.getX(), ((int) parentBounds.getY()));
-      idAndPosition = ScreenUtil.getMonitorNumberAtLocation(point) + ":" + position;
+      screenNumber = ScreenGeometry.getScreenAtLocation((int) parentBounds.getX(), (int) parentBounds.getY()).number;
+      idAndPosition = screenNumber + ":" + position;
     } else {
+      screenNumber = -1;
       idAndPosition = parent.getName() + ":" + position;
     }
 
 
-    anchorX = getAnchorX(position, parentBounds, isDesktopNotification);
-    anchorY = getAnchorY(position, parentBounds, isDesktopNotification);
+    anchorX = StackLayout.getAnchorX(position, parentBounds, isDesktopNotification);
+    anchorY = StackLayout.getAnchorY(position, parentBounds, isDesktopNotification);
+  }
+
+  /**
+   * Closes the notification (without the action of a click), for example when it's application window is disposed.
+   */
+  void dismiss() {
+    notify.close();
   }
 
   void onClick(final int x, final int y) {
@@ -130,9 +206,16 @@ class LookAndFeel {
 
     // reasonable position for detecting mouse over
     if (!notifyCanvas.isCloseButton(x, y)) {
+      // internal handlers (for example, expanding a group summary) must run on the EDT, and before the popup closes
+      Runnable clickHook = notification.clickHook;
+      if (clickHook != null) {
+        clickHook.run();
+      }
+
       // only call the general click handler IF we click in the general area!
+      ActionHandler<Notify> onGeneralAreaClickAction = notification.onGeneralAreaClickAction;
       if (onGeneralAreaClickAction != null) {
-        onGeneralAreaClickAction.handle(null);
+        NotifyCallbacks.dispatch("onAction", onGeneralAreaClickAction, notification);
       }
     }
 
@@ -140,63 +223,171 @@ class LookAndFeel {
     notify.close();
   }
 
-  // only called from an application
+  // called from an application, or when the screen geometry changes
   void reLayout(final Rectangle bounds) {
     // when the parent window moves, we stop all animation and snap the popup into place. This simplifies logic greatly
-    anchorX = getAnchorX(position, bounds, isDesktopNotification);
-    anchorY = getAnchorY(position, bounds, isDesktopNotification);
-
-    boolean showFromTop = isShowFromTop(this);
+    anchorX = StackLayout.getAnchorX(position, bounds, isDesktopNotification);
+    anchorY = StackLayout.getAnchorY(position, bounds, isDesktopNotification);
 
-    if (tween != null) {
-      tween.cancel(); // cancel does it's thing on the next tick of animation cycle
-      tween = null;
+    if (queued) {
+      // it will be placed when it leaves the queue
+      return;
     }
 
     int changedY;
-    if (popupIndex == 0) {
-      changedY = anchorY;
-    } else {
-      synchronized (popups) {
-        String id = idAndPosition;
-
-        PopupList looks = popups.get(id);
-        if (looks != null) {
-          if (showFromTop) {
-            changedY = anchorY + (popupIndex * (NotifyCanvas.HEIGHT + SPACER));
-          } else {
-            changedY = anchorY - (popupIndex * (NotifyCanvas.HEIGHT + SPACER));
-          }
-        } else {
-          changedY = anchorY;
-        }
+    synchronized (popups) {
+      PopupList looks = popups.get(idAndPosition);
+      if (looks != null) {
+        changedY = looks.getTargetY(this, popupIndex);
+        looks.animator.snap(popupIndex, this, changedY);
+      } else {
+        changedY = anchorY;
       }
     }
 
     setLocation(anchorX, changedY);
   }
 
-  void close() {
-    if (hideTween != null) {
-      hideTween.cancel();
-      hideTween = null;
+  /**
+   * Replaces where the frames come from (for example, with a {@link ManualFrameDriver} so that tests do not run in real time). If popups
+   * are animating, they continue on the new frame driver.
+   * <p>
+   * only called on the swing EDT thread
+   */
+  static void setFrameDriver(final FrameDriver frameDriver) {
+    FrameDriver previous = LookAndFeel.frameDriver;
+    if (previous == frameDriver) {
+      return;
+    }
+
+    LookAndFeel.frameDriver = frameDriver;
+
+    if (previous.isRunning(frameStartHandler)) {
+      previous.stop(frameStartHandler);
+      frameDriver.start(frameStartHandler);
+
+      // the load of the EDT only means something in real time
+      if (frameDriver.isRealTime()) {
+        EdtLoadMonitor.start();
+      } else {
+        EdtLoadMonitor.stop();
+      }
     }
+  }
+
+  /**
+   * Loads the animation classes, so that the first notification does not have to. Can be called from any thread.
+   */
+  static void warmup() {
+    Animation.load();
+  }
 
-    if (tween != null) {
-      tween.cancel();
-      tween = null;
+  /**
+   * Snaps all of the popups (of an application window) into place at once, while only taking the popups lock once.
+   * <p>
+   * only called on the swing EDT thread
+   */
+  static void reLayout(final Collection<LookAndFeel> looks, final Rectangle bounds) {
+    synchronized (popups) {
+      for (LookAndFeel look : looks) {
+        look.reLayout(bounds);
+      }
     }
+  }
+
+  /**
+   * The monitors were added, removed or resized, so every desktop stack is snapped to the new geometry of its monitor.
+   * <p>
+   * only called on the swing EDT thread
+   */
+  static void reAnchorDesktopStacks() {
+    synchronized (popups) {
+      mergeRemovedScreens();
+
+      for (PopupList looks : popups.values()) {
+        if (looks.size() == 0) {
+          continue;
+        }
+
+        LookAndFeel first = looks.get(0);
+        if (!first.isDesktopNotification) {
+          continue;
+        }
+
+        ScreenGeometry.Screen screen = ScreenGeometry.getScreen(first.screenNumber);
+
+        looks.resetOffset();
+        if (looks.size() > 1) {
+          int anchorX = StackLayout.getAnchorX(first.position, screen.bounds, true);
+          int anchorY = StackLayout.getAnchorY(first.position, screen.bounds, true);
+          looks.calculateOffset(ScreenGeometry.getScreenAtLocation(anchorX, anchorY).insets);
+        }
+
+        for (int index = 0; index < looks.size(); index++) {
+          looks.get(index).reLayout(screen.bounds);
+        }
+      }
+    }
+  }
+
+  /**
+   * The popups of a monitor that was removed are shown on a different monitor (see {@link ScreenGeometry#getScreen(int)}), so their stack
+   * is merged into the stack of that monitor. Otherwise they would be a second stack on top of it.
+   * <p>
+   * only called on the swing EDT thread, while holding the popups lock
+   */
+  private static void mergeRemovedScreens() {
+    for (Map.Entry<String, PopupList> entry : new ArrayList<Map.Entry<String, PopupList>>(popups.entrySet())) {
+      PopupList stale = entry.getValue();
+      if (stale.size() == 0 || !stale.get(0).isDesktopNotification) {
+        continue;
+      }
+
+      LookAndFeel first = stale.get(0);
+      ScreenGeometry.Screen screen = ScreenGeometry.getScreen(first.screenNumber);
+      if (screen.number == first.screenNumber) {
+        continue;
+      }
+
+      String id = screen.number + ":" + first.position;
+      PopupList looks = getStack(id, first.position, true, screen.number);
+
+      for (int index = 0; index < stale.size(); index++) {
+        LookAndFeel look = stale.get(index);
+        look.screenNumber = screen.number;
+        look.idAndPosition = id;
+        look.anchorX = StackLayout.getAnchorX(look.position, screen.bounds, true);
+        look.anchorY = StackLayout.getAnchorY(look.position, screen.bounds, true);
+
+        // it is placed into it's new slot directly (it's countdown keeps going)
+        look.isPlaced = false;
+        looks.add(look);
+      }
+
+      dropStack(entry.getKey(), stale, true);
+      layoutStack(looks, 0);
+    }
+  }
+
+  void close() {
+    cancelHideTimer();
 
     if (isDesktopNotification) {
       parent.removeWindowListener(windowListener);
     }
-    parent.removeMouseListener(mouseListener);
+    notifyCanvas.removeMouseListener(mouseListener);
+    notifyCanvas.removeMouseMotionListener(mouseListener);
+    notifyCanvas.release();
 
     updatePositionsPre(false);
     updatePositionsPost(false);
   }
 
   void shake(final int durationInMillis, final int amplitude) {
+    if (instant || EdtLoadMonitor.isAtLeast(Degradation.NO_SHAKE)) {
+      return;
+    }
+
     int i1 = RANDOM.nextInt((amplitude << 2) + 1) - amplitude;
     int i2 = RANDOM.nextInt((amplitude << 2) + 1) - amplitude;
 
@@ -222,7 +413,7 @@ class LookAndFeel {
       count++;
     }
 
-    animation.to(this, NotifyAccessor.X_Y_POS, accessor, 0.05F)
+    Animation.engine.to(this, NotifyAccessor.X_Y_POS, Animation.accessor, 0.05F)
             .targetRelative(i1, i2)
             .repeatAutoReverse(count, 0)
             .ease(TweenEquations.Linear)
@@ -261,206 +452,344 @@ class LookAndFeel {
     }
   }
 
-  private static int getAnchorX(final Pos position, final Rectangle bounds, boolean isDesktop) {
-    // we use the screen that the mouse is currently on.
-    final int startX;
-    if (isDesktop) {
-      startX = (int) bounds.getX();
-    } else {
-      startX = 0;
+  // only called on the swing EDT thread
+  private static void addPopupToMap(final LookAndFeel sourceLook) {
+    synchronized (popups) {
+      String id = sourceLook.idAndPosition;
+
+      PopupList looks = getStack(id, sourceLook.position, sourceLook.isDesktopNotification, sourceLook.screenNumber);
+
+      // higher priority popups are closer to the anchor. Everything after it is demoted by one slot.
+      int index = looks.add(sourceLook);
+
+      if (sourceLook.isDesktopNotification && looks.size() > 1) {
+        // have to adjust for offsets when the window-manager has a toolbar that consumes space and prevents overlap.
+        // this is only done when the 2nd popup is added to the list
+        if (looks.getOffsetY() == 0) {
+          looks.calculateOffset(ScreenGeometry.getScreenAtLocation(sourceLook.anchorX, sourceLook.anchorY).insets);
+        }
+      }
+
+      layoutStack(looks, index);
     }
+  }
 
-    final int screenWidth = (int) bounds.getWidth();
+  // only called on the swing EDT thread
+  private static void removePopupFromMap(final LookAndFeel sourceLook) {
+    synchronized (popups) {
+      final PopupList allLooks = popups.get(sourceLook.idAndPosition);
 
-    // determine location for the popup
-    // get anchorX
-    switch (position) {
-      case TOP_LEFT:
-      case BOTTOM_LEFT:
-        return MARGIN + startX;
+      sourceLook.cancelHideTimer();
 
-      case CENTER:
-        return startX + (screenWidth / 2) - NotifyCanvas.WIDTH / 2 - MARGIN / 2;
+      if (allLooks == null) {
+        // already removed, and it's stack is gone
+        return;
+      }
 
-      case TOP_RIGHT:
-      case BOTTOM_RIGHT:
-        return startX + screenWidth - NotifyCanvas.WIDTH - MARGIN;
+      // everything after it is promoted by one slot, and if there is a queue, the next popup is shown
+      int index = allLooks.remove(sourceLook);
+      if (index >= 0) {
+        layoutStack(allLooks, index);
+      }
 
-      default:
-        throw new RuntimeException("Unknown position. '" + position + "'");
+      if (allLooks.size() == 0) {
+        // empty stacks are dropped, otherwise every application window (and monitor) that ever had a popup would leave one behind
+        dropStack(sourceLook.idAndPosition, allLooks, sourceLook.isDesktopNotification);
+      }
     }
   }
 
-  private static int getAnchorY(final Pos position, final Rectangle bounds, final boolean isDesktop) {
-    final int startY;
-    if (isDesktop) {
-      startY = (int) bounds.getY();
-    } else {
-      startY = 0;
+  /**
+   * @return the stack for the id, which is created if it does not exist yet
+   * <p>
+   * only called on the swing EDT thread, while holding the popups lock
+   */
+  private static PopupList getStack(final String id, final Pos position, final boolean isDesktopNotification, final int screenNumber) {
+    PopupList looks = popups.get(id);
+    if (looks == null) {
+      looks = new PopupList(position);
+      popups.put(id, looks);
+
+      if (isDesktopNotification && desktopStacks++ == 0) {
+        ScreenGeometry.startWatching();
+      }
+
+      StackAnimator[] animators = Arrays.copyOf(LookAndFeel.animators, LookAndFeel.animators.length + 1);
+      animators[animators.length - 1] = looks.animator;
+      LookAndFeel.animators = animators;
     }
-    final int screenHeight = (int) bounds.getHeight();
 
-    // get anchorY
-    switch (position) {
-      case TOP_LEFT:
-      case TOP_RIGHT:
-        return startY + MARGIN;
+    if (Notify.SHARED_STACKS && isDesktopNotification && looks.sharedStack == null) {
+      looks.sharedStack = SharedStack.claim(screenNumber, position);
+      if (looks.sharedStack != null) {
+        looks.setStackOffset(looks.sharedStack.getOffset());
+      }
+    }
 
-      case CENTER:
-        return startY + (screenHeight / 2) - NotifyCanvas.HEIGHT / 2 - MARGIN / 2 - SPACER;
+    return looks;
+  }
 
-      case BOTTOM_LEFT:
-      case BOTTOM_RIGHT:
-        if (isDesktop) {
-          return startY + screenHeight - NotifyCanvas.HEIGHT - MARGIN;
-        } else {
-          return startY + screenHeight - NotifyCanvas.HEIGHT - MARGIN - SPACER * 2;
-        }
+  // only called on the swing EDT thread, while holding the popups lock
+  private static void dropStack(final String id, final PopupList looks, final boolean isDesktopNotification) {
+    popups.remove(id);
+    removeAnimator(looks.animator);
 
-      default:
-        throw new RuntimeException("Unknown position. '" + position + "'");
+    if (isDesktopNotification && --desktopStacks == 0) {
+      ScreenGeometry.stopWatching();
+    }
+
+    if (looks.sharedStack != null) {
+      looks.sharedStack.release();
+      looks.sharedStack = null;
     }
   }
 
-  // only called on the swing EDT thread
-  private static void addPopupToMap(final LookAndFeel sourceLook) {
+  // only called while holding the popups lock
+  private static void removeAnimator(final StackAnimator animator) {
+    StackAnimator[] animators = LookAndFeel.animators;
+
+    for (int i = 0; i < animators.length; i++) {
+      if (animators[i] == animator) {
+        StackAnimator[] copy = new StackAnimator[animators.length - 1];
+        System.arraycopy(animators, 0, copy, 0, i);
+        System.arraycopy(animators, i + 1, copy, i, animators.length - i - 1);
+        LookAndFeel.animators = copy;
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return how many stacks (screen or application window + position) have popups
+   */
+  static int getStackCount() {
     synchronized (popups) {
-      String id = sourceLook.idAndPosition;
+      return popups.size();
+    }
+  }
 
-      PopupList looks = popups.get(id);
-      if (looks == null) {
-        looks = new PopupList();
-        popups.put(id, looks);
-      }
-      final int index = looks.size();
-      sourceLook.popupIndex = index;
+  /**
+   * Moves every popup in the stack to the slot for its (priority ordered) index, in a single pass. New popups (and popups that leave the
+   * queue) are placed directly into their slot, popups that changed slot are moved to it by the stack animator, and popups past the
+   * maximum number of visible popups are queued until there is room for them.
+   * <p>
+   * Only the popups from the specified index on are displaced, everything before it is left as it is.
+   * <p>
+   * only called on the swing EDT thread, while holding the popups lock
+   */
+  private static void layoutStack(final PopupList looks, final int fromIndex) {
+    final int maxVisible = Notify.MAX_VISIBLE_PER_STACK;
+    final StackAnimator animator = looks.animator;
 
-      // the popups are ALL the same size!
-      // popups at TOP grow down, popups at BOTTOM grow up
-      int targetY;
-      int anchorX = sourceLook.anchorX;
-      int anchorY = sourceLook.anchorY;
+    animator.beginLayout(looks.size(), fromIndex);
 
-      if (index == 0) {
-        targetY = anchorY;
-      } else {
-        boolean showFromTop = isShowFromTop(sourceLook);
+    for (int index = fromIndex; index < looks.size(); index++) {
+      final LookAndFeel look = looks.get(index);
+      final int previousIndex = look.popupIndex;
+      look.popupIndex = index;
 
-        if (sourceLook.isDesktopNotification && index == 1) {
-          // have to adjust for offsets when the window-manager has a toolbar that consumes space and prevents overlap.
-          // this is only done when the 2nd popup is added to the list
-          looks.calculateOffset(showFromTop, anchorX, anchorY);
+      if (StackLayout.isQueued(index, maxVisible)) {
+        if (!look.queued) {
+          look.setQueued(true);
         }
+        animator.hold(index, look);
+        continue;
+      }
 
-        if (showFromTop) {
-          targetY = anchorY + (index * (NotifyCanvas.HEIGHT + SPACER)) + looks.getOffsetY();
-        } else {
-          targetY = anchorY - (index * (NotifyCanvas.HEIGHT + SPACER)) + looks.getOffsetY();
+      final int targetY = looks.getTargetY(look, index);
+
+      if (!look.isPlaced || look.queued) {
+        look.isPlaced = true;
+        look.setLocation(look.anchorX, targetY);
+        animator.place(index, look, targetY);
+
+        if (look.queued) {
+          look.setQueued(false);
         }
 
+        look.startHideTimer();
+      } else if (look.instant) {
+        look.setLocation(look.anchorX, targetY);
+        animator.place(index, look, targetY);
+      } else {
+        // popups that are already moving are retargeted from wherever they are now
+        animator.moveTo(index, previousIndex, look, targetY);
       }
+    }
 
-      looks.add(sourceLook);
-      sourceLook.setLocation(anchorX, targetY);
-
-      if (sourceLook.hideAfterDurationInSeconds > 0 && sourceLook.hideTween == null) {
-        // begin a timeline to get rid of the popup (default is 5 seconds)
-        animation.to(sourceLook, NotifyAccessor.PROGRESS, accessor, sourceLook.hideAfterDurationInSeconds)
-                .target(NotifyCanvas.WIDTH)
-                .ease(TweenEquations.Linear)
-                .addCallback(new TweenCallback() {
-                  @Override
-                  public void onEvent(final int type, final BaseTween<?> source) {
-                    if (type == Events.COMPLETE) {
-                      sourceLook.notify.close();
-                    }
-                  }
-                })
-                .start();
-      }
+    animator.endLayout();
+
+    if (looks.sharedStack != null) {
+      looks.sharedStack.setHeight(looks.getVisibleSpace(maxVisible));
     }
   }
 
-  // only called on the swing app or SwingActiveRender thread
-  private static boolean removePopupFromMap(final LookAndFeel sourceLook) {
-    boolean showFromTop = isShowFromTop(sourceLook);
-    boolean popupsAreEmpty;
-
+  /**
+   * The stacks of the other processes (that share stacks with this one) may have changed, so the popups of every shared stack are moved
+   * to make room for them.
+   * <p>
+   * only called on the swing EDT thread
+   */
+  static void refreshSharedStacks() {
     synchronized (popups) {
-      popupsAreEmpty = popups.isEmpty();
-      final PopupList allLooks = popups.get(sourceLook.idAndPosition);
+      for (PopupList looks : popups.values()) {
+        if (looks.sharedStack != null && looks.sharedStack.refresh()) {
+          looks.setStackOffset(looks.sharedStack.getOffset());
+          layoutStack(looks, 0);
+        }
+      }
+    }
+  }
+
+  /**
+   * Changes the height of the popup. The popups after it in the stack are moved to make room.
+   * <p>
+   * only called on the swing EDT thread
+   */
+  void resize(final int height) {
+    if (this.height == height) {
+      return;
+    }
 
-      // there are two loops because it is necessary to cancel + remove all tweens BEFORE adding new ones.
-      boolean adjustPopupPosition = false;
-      for (Iterator<LookAndFeel> iterator = allLooks.iterator(); iterator.hasNext(); ) {
-        final LookAndFeel look = iterator.next();
+    this.height = height;
+    notifyCanvas.setHeight(height);
+    if (isDesktopNotification) {
+      ((AsDesktop) notify).setHeight(height);
+    }
 
-        if (look.tween != null) {
-          look.tween.cancel(); // cancel does it's thing on the next tick of animation cycle
-          look.tween = null;
+    synchronized (popups) {
+      PopupList looks = popups.get(idAndPosition);
+      if (looks != null) {
+        int index = looks.resize(this);
+        if (index >= 0) {
+          // at the BOTTOM, the popup itself moves as well
+          layoutStack(looks, index);
         }
+      }
+    }
+  }
 
-        if (look == sourceLook) {
-          if (look.hideTween != null) {
-            look.hideTween.cancel();
-            look.hideTween = null;
+  // only called on the swing EDT thread
+  private void startHideTimer() {
+    if (instant) {
+      if (hideAfterDurationInSeconds > 0 && hideTimer == null) {
+        //noinspection Convert2Lambda
+        hideTimer = new Timer((int) (hideAfterDurationInSeconds * 1000), new ActionListener() {
+          @Override
+          public void actionPerformed(final ActionEvent e) {
+            notify.close();
           }
+        });
+        hideTimer.setRepeats(false);
+        hideTimer.start();
+      }
+      return;
+    }
 
-          adjustPopupPosition = true;
-          iterator.remove();
-        }
+    if (hideAfterDurationInSeconds > 0 && hideTween == null) {
+      // begin a timeline to get rid of the popup (default is 5 seconds)
+      hideTween = Animation.engine.to(this, NotifyAccessor.PROGRESS, Animation.accessor, hideAfterDurationInSeconds)
+              .target(NotifyCanvas.WIDTH)
+              .ease(TweenEquations.Linear)
+              .addCallback(new TweenCallback() {
+                @Override
+                public void onEvent(final int type, final BaseTween<?> source) {
+                  if (type == Events.COMPLETE) {
+                    notify.close();
+                  }
+                }
+              })
+              .start();
+    }
+  }
 
-        if (adjustPopupPosition) {
-          look.popupIndex--;
-        }
+  /**
+   * Queued popups are hidden (and do not count down) until there is room for them in the stack.
+   * <p>
+   * only called on the swing EDT thread
+   */
+  private void setQueued(final boolean queued) {
+    this.queued = queued;
+
+    if (queued) {
+      cancelHideTimer();
+      setProgress(0);
+
+      stopRendering();
+    }
+
+    if (isDesktopNotification) {
+      if (queued) {
+        ((AsDesktop) notify).doHide();
+      } else {
+        ((AsDesktop) notify).doShow();
       }
+    } else {
+      notifyCanvas.setVisible(!queued);
+    }
 
-      // have to adjust for offsets when the window-manager has a toolbar that consumes space and prevents overlap.
-      int offsetY = allLooks.getOffsetY();
+    if (!queued) {
+      startRendering();
+    }
+  }
 
-      for (int index = 0; index < allLooks.size(); index++) {
-        final LookAndFeel look = allLooks.get(index);
-        // the popups are ALL the same size!
-        // popups at TOP grow down, popups at BOTTOM grow up
-        int changedY;
+  // only called on the swing EDT thread
+  private void cancelHideTimer() {
+    if (hideTween != null) {
+      hideTween.cancel();
+      hideTween = null;
+    }
 
-        if (showFromTop) {
-          changedY = look.anchorY + (look.popupIndex * (NotifyCanvas.HEIGHT + SPACER) + offsetY);
-        } else {
-          changedY = look.anchorY - (look.popupIndex * (NotifyCanvas.HEIGHT + SPACER) + offsetY);
-        }
+    if (hideTimer != null) {
+      hideTimer.stop();
+      hideTimer = null;
+    }
+  }
 
-        // now animate that popup to it's new location
-        look.tween = animation.to(look, NotifyAccessor.Y_POS, accessor, MOVE_DURATION)
-                .target((float) changedY)
-                .ease(TweenEquations.Linear)
-                .addCallback(new TweenCallback() {
-                  @Override
-                  public void onEvent(final int type, final BaseTween<?> source) {
-                    if (type == Events.COMPLETE) {
-                      // make sure to remove the tween once it's done, otherwise .kill can do weird things.
-                      look.tween = null;
-                    }
-                  }
-                })
-                .start();
-      }
+  // attached notifications are painted by the overlay of their window instead, and instant notifications are only painted when they change
+  private void startRendering() {
+    if (isDesktopNotification && !instant) {
+      SwingActiveRender.addActiveRender(notifyCanvas);
+    }
+  }
+
+  private void stopRendering() {
+    if (isDesktopNotification && !instant) {
+      SwingActiveRender.removeActiveRender(notifyCanvas);
     }
+  }
 
-    return popupsAreEmpty;
+  /**
+   * @return true if the popup never moves or animates, see {@link Notify#INSTANT_LAYOUT}
+   */
+  boolean isInstant() {
+    return instant;
   }
 
-  private static boolean isShowFromTop(final LookAndFeel look) {
-    switch (look.position) {
-      case TOP_LEFT:
-      case TOP_RIGHT:
-      case CENTER: // center grows down
-        return true;
-      default:
-        return false;
+  /**
+   * see {@link Notify#setInstantLayout(Pos, boolean)}
+   */
+  static void setInstantLayout(final Pos position, final boolean instant) {
+    if (instant) {
+      instantPositions.add(position);
+    } else {
+      instantPositions.remove(position);
     }
   }
 
+  NotifyCanvas getCanvas() {
+    return notifyCanvas;
+  }
+
+  INotify getNotify() {
+    return notify;
+  }
+
+  // can be called from any thread
+  void updateContent(final int layers, final String title, final String text, final ImageIcon imageIcon) {
+    notifyCanvas.update(layers, title, text, imageIcon);
+  }
+
   void setProgress(final int progress) {
     notifyCanvas.setProgress(progress);
   }
@@ -474,12 +803,17 @@ class LookAndFeel {
    */
   void updatePositionsPre(final boolean visible) {
     if (!visible) {
-      boolean popupsAreEmpty = LookAndFeel.removePopupFromMap(this);
-      SwingActiveRender.removeActiveRender(notifyCanvas);
+      LookAndFeel.removePopupFromMap(this);
+      stopRendering();
 
-      if (popupsAreEmpty) {
-        // if there's nothing left, stop the timer.
-        SwingActiveRender.removeActiveRenderFrameStart(frameStartHandler);
+      if (animated) {
+        animated = false;
+
+        if (--animatedPopups == 0) {
+          // if there's nothing left to animate, stop the timer.
+          frameDriver.stop(frameStartHandler);
+          EdtLoadMonitor.stop();
+        }
       }
     }
   }
@@ -489,12 +823,23 @@ class LookAndFeel {
    */
   void updatePositionsPost(final boolean visible) {
     if (visible) {
-      SwingActiveRender.addActiveRender(notifyCanvas);
+      startRendering();
+
+      // instant popups never need frames
+      if (!instant && !animated) {
+        animated = true;
+        animatedPopups++;
 
-      // start if we have previously stopped the timer
-      if (!SwingActiveRender.containsActiveRenderFrameStart(frameStartHandler)) {
-        LookAndFeel.animation.resetUpdateTime();
-        SwingActiveRender.addActiveRenderFrameStart(frameStartHandler);
+        // start if we have previously stopped the timer
+        if (!frameDriver.isRunning(frameStartHandler)) {
+          Animation.engine.resetUpdateTime();
+          frameDriver.start(frameStartHandler);
+
+          // a virtual clock (see ManualFrameDriver) must not be degraded by how long the real time steps take
+          if (frameDriver.isRealTime()) {
+            EdtLoadMonitor.start();
+          }
+        }
       }
 
       LookAndFeel.addPopupToMap(this);
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import dorkbox.util.ActionHandlerLong;
+
+import java.awt.*;
+
+/**
+ * A virtual clock, where frames only happen when they are stepped. Popups that are shown while this is the frame driver (see
+ * {@link LookAndFeel#setFrameDriver(FrameDriver)}) only animate and count down when {@link #step(long)} or {@link #advance(long, long)}
+ * is called, so tests and benchmarks can run any number of frames (for example, the whole lifetime of a popup) deterministically, and
+ * faster than real time.
+ * <p>
+ * Frames should be stepped on the swing EDT, so that the popups closed by a frame are removed before the next one.
+ */
+final
+class ManualFrameDriver implements FrameDriver {
+  private volatile ActionHandlerLong frameStartHandler = null;
+
+  private long nanoTime = 0L;
+  private long frames = 0L;
+
+  @Override
+  public void start(final ActionHandlerLong frameStartHandler) {
+    this.frameStartHandler = frameStartHandler;
+  }
+
+  @Override
+  public void stop(final ActionHandlerLong frameStartHandler) {
+    if (this.frameStartHandler == frameStartHandler) {
+      this.frameStartHandler = null;
+    }
+  }
+
+  @Override
+  public boolean isRunning(final ActionHandlerLong frameStartHandler) {
+    return this.frameStartHandler == frameStartHandler;
+  }
+
+  @Override
+  public boolean isRealTime() {
+    return false;
+  }
+
+  /**
+   * Runs a single frame, as if this much time had passed since the previous one.
+   */
+  synchronized
+  void step(final long deltaInNanos) {
+    nanoTime += deltaInNanos;
+    frames++;
+
+    ActionHandlerLong frameStartHandler = this.frameStartHandler;
+    if (frameStartHandler != null) {
+      frameStartHandler.handle(deltaInNanos);
+    }
+
+    // the popups that this frame closed are removed before the next one (instead of whenever the EDT gets to the queued commands)
+    if (EventQueue.isDispatchThread()) {
+      NotifyCommands.drain();
+    }
+  }
+
+  /**
+   * Runs as many frames (of the frame duration) as fit into the duration. The last frame is shorter if it does not fit exactly.
+   */
+  synchronized
+  void advance(long durationInNanos, final long frameInNanos) {
+    if (frameInNanos <= 0) {
+      throw new IllegalArgumentException("The frame duration must be greater than 0");
+    }
+
+    while (durationInNanos > 0) {
+      long delta = Math.min(frameInNanos, durationInNanos);
+      step(delta);
+      durationInNanos -= delta;
+    }
+  }
+
+  /**
+   * @return the virtual time (in nanoseconds) that has passed
+   */
+  synchronized
+  long getNanoTime() {
+    return nanoTime;
+  }
+
+  /**
+   * @return how many frames were run
+   */
+  synchronized
+  long getFrames() {
+    return frames;
+  }
+}
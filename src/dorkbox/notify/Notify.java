@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.SoftReference;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -153,8 +154,85 @@ class Notify {
   @Property
   public static String IMAGE_PATH = "resources";
 
+  /**
+   * The maximum number of popups that are visible at the same time in a single stack (screen + position). The rest are queued (by
+   * priority) until there is room for them. 0 means there is no limit.
+   */
+  @Property
+  public static int MAX_VISIBLE_PER_STACK = 0;
+
+  /**
+   * When more than this many notifications in the same group (see {@link #group(String)}) are shown within {@link #GROUP_WINDOW_MILLIS},
+   * they are collapsed into a single summary popup.
+   */
+  @Property
+  public static int GROUP_THRESHOLD = 5;
+
+  /**
+   * The duration (in milliseconds) in which more than {@link #GROUP_THRESHOLD} notifications of the same group will collapse them into a
+   * single summary popup.
+   */
+  @Property
+  public static int GROUP_WINDOW_MILLIS = 10000;
+
+  /**
+   * The pixel format of the image that each popup caches it's content in. The background of a popup is always opaque, so the formats without
+   * an alpha channel look the same.
+   * <ul>
+   * <li>"ARGB" 32 bits per pixel, with an alpha channel</li>
+   * <li>"RGB" 32 bits per pixel</li>
+   * <li>"565" 16 bits per pixel, so half the memory (at the cost of some color precision)</li>
+   * <li>"COMPATIBLE" whatever format the display uses, which is the fastest to draw</li>
+   * </ul>
+   */
+  @Property
+  public static String CANVAS_RASTER_FORMAT = "ARGB";
+
+  /**
+   * The maximum number of bytes used by the cached images of all popups. When over the budget, the images of popups that are not showing
+   * (for example, they are queued) are dropped, and rendered again when they are shown. 0 means there is no limit.
+   */
+  @Property
+  public static long CANVAS_RASTER_BUDGET = 0;
+
+  /**
+   * Share the stacks of desktop popups with the other processes (on the same desktop) that use notifications, so that their popups are
+   * placed one after the other instead of on top of each other. This is coordinated with a small file (per screen + position) in the temp
+   * directory.
+   */
+  @Property
+  public static boolean SHARED_STACKS = false;
+
+  /**
+   * When it takes longer than this (in milliseconds) for the swing EDT to run a task, or for a frame of the animation to be drawn, the
+   * effects of the popups are reduced step by step (see {@link Degradation}), and restored when the load subsides. 0 disables this.
+   */
+  @Property
+  public static int DEGRADE_LATENCY_MILLIS = 50;
+
+  /**
+   * Popups never move or animate: they are placed directly into their slot, and are hidden by a timer instead of a countdown animation.
+   * When only these popups are showing, nothing is rendered (or updated) on every frame. This can also be set for a single position (on
+   * every screen and application window), see {@link #setInstantLayout(Pos, boolean)}.
+   */
+  @Property
+  public static boolean INSTANT_LAYOUT = false;
+
+  // the title, and the progress bar below it
+  private static final int MIN_HEIGHT = 30;
+
   private static Map<String, SoftReference<ImageIcon>> imageCache = new HashMap<String, SoftReference<ImageIcon>>(4);
 
+  private static volatile NotifyHistory history = null;
+
+  private static Thread warmupThread = null;
+
+  // the default themes (the fonts are expensive to parse), which are created again if the fonts are changed
+  private static Theme lightTheme = null;
+  private static Theme darkTheme = null;
+  private static String themeTitleFont = null;
+  private static String themeMainFont = null;
+
   /**
    * Gets the version number.
    */
@@ -169,6 +247,63 @@ class Notify {
     return new Notify();
   }
 
+  /**
+   * Initializes (in the background) everything that the first notification would otherwise have to: the animation and render classes, the
+   * fonts of the default theme, the HTML renderer for the text, and the image decoders. Nothing is shown, and nothing else happens until a
+   * notification is first used.
+   * <p>
+   * Call this while the application starts up, so that the first notification is shown as quickly as the rest of them.
+   *
+   * @return the thread that does the work, which can be joined to wait for it to finish
+   */
+  public static synchronized Thread warmup() {
+    if (warmupThread == null) {
+      //noinspection Convert2Lambda
+      warmupThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          LookAndFeel.warmup();
+          NotifyCanvas.warmup(getDefaultTheme(false));
+          ImageIO.getImageReadersBySuffix("png");
+        }
+      }, "Notify Warmup");
+      warmupThread.setDaemon(true);
+      warmupThread.start();
+    }
+
+    return warmupThread;
+  }
+
+  /**
+   * Sets if the popups at the position never move or animate, see {@link #INSTANT_LAYOUT}. This is kept per position, not per stack: it is
+   * shared by the stacks at the position on every screen and in every application window, and a single one of them cannot be set on it's
+   * own. This only changes the popups that are shown afterwards.
+   */
+  public static void setInstantLayout(final Pos position, final boolean instant) {
+    LookAndFeel.setInstantLayout(position, instant);
+  }
+
+  /**
+   * @return how much of the effects of the popups are currently skipped, because the swing EDT is overloaded
+   */
+  public static Degradation getDegradation() {
+    return EdtLoadMonitor.getLevel();
+  }
+
+  /**
+   * Records every notification that is shown to the specified history log, or stops recording if null.
+   */
+  public static void setHistory(final NotifyHistory history) {
+    Notify.history = history;
+  }
+
+  /**
+   * @return the history log that notifications are recorded to, or null if they are not recorded.
+   */
+  public static NotifyHistory getHistory() {
+    return history;
+  }
+
   /**
    * Gets the size of the image to be used in the notification, which is a 48x48 pixel image.
    */
@@ -210,7 +345,7 @@ class Notify {
     imageCache.put(imageName, new SoftReference<ImageIcon>(new ImageIcon(bufferedImage)));
   }
 
-  private static ImageIcon getImage(String imageName) {
+  static ImageIcon getImage(String imageName) {
     ImageIcon image = null;
     InputStream resourceAsStream = null;
 
@@ -251,64 +386,126 @@ class Notify {
   Theme theme;
 
   Pos position = Pos.BOTTOM_RIGHT;
+  Priority priority = Priority.NORMAL;
   int hideAfterDurationInMillis = 0;
 
   boolean hideCloseButton;
   boolean isDark = false;
   int screenNumber = Short.MIN_VALUE;
   private ImageIcon icon;
+  private String imageName;
 
   ActionHandler<Notify> onGeneralAreaClickAction;
-  private INotify notifyPopup;
+  private ActionHandler<Notify> onCloseAction;
+  // only the popup that is showing right now. Only changed on the swing EDT
+  private volatile INotify notifyPopup;
 
   //    private String name;
   private int shakeDurationInMillis = 0;
   private int shakeAmplitude = 0;
-  private JFrame appWindow;
+  JFrame appWindow;
+
+  // notifications in the same group are collapsed into one summary popup, if there are too many of them
+  String group;
+
+  int height = NotifyCanvas.HEIGHT;
+
+  // the notification was created from this template, which renders the parts that do not change
+  NotifyTemplate template;
+
+  // so the content can be updated while it is showing
+  volatile LookAndFeel look;
+
+  // notified when the popup is closed, so the notification server can release the admission of this notification
+  Runnable closeHook;
+
+  // run on the swing EDT when the popup is clicked (before it closes). This is internal, so it is never run on the callback executor
+  Runnable clickHook;
 
   private Notify() {
   }
 
+  /**
+   * @return a new notification with the same settings as this one (but not shown)
+   */
+  Notify copy() {
+    Notify copy = new Notify();
+    copy.title = title;
+    copy.text = text;
+    copy.theme = theme;
+    copy.position = position;
+    copy.priority = priority;
+    copy.hideAfterDurationInMillis = hideAfterDurationInMillis;
+    copy.hideCloseButton = hideCloseButton;
+    copy.isDark = isDark;
+    copy.screenNumber = screenNumber;
+    copy.icon = icon;
+    copy.imageName = imageName;
+    copy.onGeneralAreaClickAction = onGeneralAreaClickAction;
+    copy.onCloseAction = onCloseAction;
+    copy.shakeDurationInMillis = shakeDurationInMillis;
+    copy.shakeAmplitude = shakeAmplitude;
+    copy.appWindow = appWindow;
+    copy.group = group;
+    copy.height = height;
+    copy.template = template;
+    return copy;
+  }
+
+  ImageIcon getIcon() {
+    return icon;
+  }
+
   /**
    * Especifica el texto principal
+   * <p>
+   * If the notification is already showing, the text is changed in place. This is safe to call from any thread, as often as necessary.
    */
   public Notify text(String text) {
     this.text = text;
+
+    LookAndFeel look = this.look;
+    if (look != null) {
+      look.updateContent(NotifyCanvas.TEXT, null, text, null);
+    }
     return this;
   }
 
   /**
    * Especifica el título
+   * <p>
+   * If the notification is already showing, the title is changed in place. This is safe to call from any thread, as often as necessary.
    */
   public Notify title(String title) {
     this.title = title;
+
+    LookAndFeel look = this.look;
+    if (look != null) {
+      look.updateContent(NotifyCanvas.TITLE, title, null, null);
+    }
     return this;
   }
 
   /**
    * Specifies the image
+   * <p>
+   * If the notification is already showing, the image is changed in place. This is safe to call from any thread.
    */
   public Notify image(Image image) {
-    // we only use 48x48 pixel images. Resize as necessary
-    int width = image.getWidth(null);
-    int height = image.getHeight(null);
-
-    BufferedImage bufferedImage = ImageUtil.getBufferedImage(image);
+    // we only use 48x48 pixel images. The same image is only ever resized once
+    this.icon = IconScaler.getIcon(image);
 
-    // resize the image, keep aspect ratio
-    if (width > height) {
-      bufferedImage = ImageUtil.resizeImage(bufferedImage, 48, -1);
-    } else {
-      bufferedImage = ImageUtil.resizeImage(bufferedImage, -1, 48);
+    LookAndFeel look = this.look;
+    if (look != null) {
+      look.updateContent(NotifyCanvas.IMAGE, null, null, this.icon);
     }
+    return this;
+  }
 
-    // we have to now clamp to a max dimension of 48
-    bufferedImage = ImageUtil.clampMaxImageSize(bufferedImage, 48);
-
-    // now we want to center the image
-    bufferedImage = ImageUtil.getSquareBufferedImage(bufferedImage);
-
-    this.icon = new ImageIcon(bufferedImage);
+  // the icon has already been loaded (and sized) by the caller
+  Notify icon(final ImageIcon icon, final String imageName) {
+    this.icon = icon;
+    this.imageName = imageName;
     return this;
   }
 
@@ -320,6 +517,43 @@ class Notify {
     return this;
   }
 
+  /**
+   * Specifies the priority of the notification, by default it is {@link Priority#NORMAL normal}. Higher priority notifications are placed
+   * closer to the corner of the stack, and lower priority notifications are moved away from it (or queued, see
+   * {@link #MAX_VISIBLE_PER_STACK}).
+   */
+  public Notify priority(final Priority priority) {
+    this.priority = priority;
+    return this;
+  }
+
+  /**
+   * Specifies the height (in pixels) of the notification, by default it is 87. Compact notifications (with only a title) can be 30 pixels
+   * high, and notifications with more lines of text can be higher.
+   * <p>
+   * If the notification is already showing, it is resized in place (and the notifications after it move to make room). This is safe to
+   * call from any thread.
+   */
+  public Notify height(final int height) {
+    this.height = Math.max(MIN_HEIGHT, height);
+
+    LookAndFeel look = this.look;
+    if (look != null) {
+      NotifyCommands.resize(look, this.height);
+    }
+    return this;
+  }
+
+  /**
+   * Specifies the group (category) of the notification. When more than {@link #GROUP_THRESHOLD} notifications of the same group are
+   * shown within {@link #GROUP_WINDOW_MILLIS}, they collapse into a single summary popup ("12 build notifications"). Clicking the summary
+   * shows them all again.
+   */
+  public Notify group(final String group) {
+    this.group = group;
+    return this;
+  }
+
   /**
    * Especifica la duración que debe mostrar la notificación, después de lo cual se ocultará. 0 significa mostrar para siempre. Por defecto es
    * se mostrará para siempre
@@ -341,6 +575,17 @@ class Notify {
     return this;
   }
 
+  /**
+   * Specifies what to do after the notification has closed, no matter why it closed (the close button, a click, the duration expiring,
+   * or {@link #close()}).
+   * <p>
+   * This runs where the other callbacks run, see {@link NotifyCallbacks}.
+   */
+  public Notify onClose(ActionHandler<Notify> onClose) {
+    this.onCloseAction = onClose;
+    return this;
+  }
+
   /**
    * Especifica que la notificación debe usar el estilo oscuro incorporado, en lugar del estilo de notificación gris claro predeterminado.
    */
@@ -371,6 +616,7 @@ class Notify {
   public void showNotify(String name_icon) {
 //        name = DIALOG_ERROR;
     icon = getImage(name_icon);
+    imageName = name_icon;
     show();
   }
 
@@ -384,33 +630,109 @@ class Notify {
     SwingUtil.invokeAndWaitQuietly(new Runnable() {
       @Override
       public void run() {
-        final Notify notify = Notify.this;
-        final ImageIcon image = notify.icon;
-
-        Theme theme;
-        if (notify.theme != null) {
-          // use custom theme.
-          theme = notify.theme;
-        } else {
-          theme = new Theme(Notify.TITLE_TEXT_FONT, Notify.MAIN_TEXT_FONT, notify.isDark);
-        }
+        showOnEdt();
+      }
+    });
+  }
 
-        if (appWindow == null) {
-          notifyPopup = new AsDesktop(notify, image, theme);
-        } else {
-          notifyPopup = new AsApplication(notify, image, appWindow, theme);
+  /**
+   * Shows all of the notifications in a single pass on the swing EDT, instead of one EDT round trip per notification. This does not
+   * wait for them to be shown.
+   */
+  static void showAll(final List<Notify> notifications) {
+    //noinspection Convert2Lambda
+    SwingUtil.invokeLater(new Runnable() {
+      @Override
+      public void run() {
+        for (Notify notification : notifications) {
+          // one notification that fails must not stop the rest of them
+          try {
+            notification.showOnEdt();
+          } catch (Throwable e) {
+            e.printStackTrace();
+
+            if (notification.notifyPopup == null) {
+              // it is not showing, so it will never close (and release whatever it holds, such as it's admission to the server)
+              Runnable closeHook = notification.closeHook;
+              notification.closeHook = null;
+
+              if (closeHook != null) {
+                closeHook.run();
+              }
+            }
+          }
         }
+      }
+    });
+  }
 
-        notifyPopup.setVisible(true);
+  // must be called on the swing EDT
+  void showOnEdt() {
+    NotifyHistory history = Notify.history;
+    if (history != null) {
+      history.record(this, imageName);
+    }
 
-        if (shakeDurationInMillis > 0) {
-          notifyPopup.shake(notify.shakeDurationInMillis, notify.shakeAmplitude);
-        }
+    if (group != null && NotifyGroup.absorb(this)) {
+      // it is part of the summary popup for it's group
+      return;
+    }
+
+    showPopup();
+  }
+
+  static synchronized Theme getDefaultTheme(final boolean isDark) {
+    String titleFont = Notify.TITLE_TEXT_FONT;
+    String mainFont = Notify.MAIN_TEXT_FONT;
+
+    if (!titleFont.equals(themeTitleFont) || !mainFont.equals(themeMainFont)) {
+      lightTheme = null;
+      darkTheme = null;
+      themeTitleFont = titleFont;
+      themeMainFont = mainFont;
+    }
+
+    if (isDark) {
+      if (darkTheme == null) {
+        darkTheme = new Theme(titleFont, mainFont, true);
       }
-    });
+      return darkTheme;
+    } else {
+      if (lightTheme == null) {
+        lightTheme = new Theme(titleFont, mainFont, false);
+      }
+      return lightTheme;
+    }
+  }
+
+  // must be called on the swing EDT
+  void showPopup() {
+    final ImageIcon image = icon;
+
+    Theme theme;
+    if (this.theme != null) {
+      // use custom theme.
+      theme = this.theme;
+    } else {
+      theme = getDefaultTheme(isDark);
+    }
+
+    if (appWindow == null) {
+      notifyPopup = new AsDesktop(this, image, theme);
+    } else {
+      notifyPopup = new AsApplication(this, image, appWindow, theme);
+    }
+
+    notifyPopup.setVisible(true);
+
+    if (shakeDurationInMillis > 0) {
+      notifyPopup.shake(shakeDurationInMillis, shakeAmplitude);
+    }
 
-    // don't need to hang onto these.
-    icon = null;
+    // don't need to hang onto these. (grouped notifications might be shown again)
+    if (group == null) {
+      icon = null;
+    }
   }
 
   /**
@@ -423,36 +745,65 @@ class Notify {
     this.shakeDurationInMillis = durationInMillis;
     this.shakeAmplitude = amplitude;
 
+    INotify notifyPopup = this.notifyPopup;
     if (notifyPopup != null) {
       // debe hacerse en el swing EDT
+      NotifyCommands.shake(notifyPopup, durationInMillis, amplitude);
+    }
+
+    return this;
+  }
+
+  /**
+   * Closes the notification. Particularly useful if it's an "infinite" duration notification.
+   */
+  public void close() {
+    INotify notifyPopup = this.notifyPopup;
+    if (notifyPopup != null) {
+      // queued for the swing EDT (there is only one hop to it)
+      notifyPopup.close();
+      return;
+    }
+
+    if (group != null) {
+      // it is collapsed into the summary of it's group, so it is closed there
       //noinspection Convert2Lambda
       SwingUtil.invokeLater(new Runnable() {
         @Override
         public void run() {
-          notifyPopup.shake(durationInMillis, amplitude);
+          NotifyGroup.close(Notify.this);
         }
       });
+      return;
     }
 
-    return this;
+    throw new NullPointerException("NotifyPopup");
   }
 
   /**
-   * Closes the notification. Particularly useful if it's an "infinite" duration notification.
+   * Closes the popup, without closing the notification (so the callbacks and hooks are not run). This is for when it collapses into the
+   * summary of it's group, where it is still part of the group.
+   * <p>
+   * must be called on the swing EDT
    */
-  public void close() {
+  void hidePopup() {
+    INotify notifyPopup = this.notifyPopup;
     if (notifyPopup == null) {
-      throw new NullPointerException("NotifyPopup");
+      return;
     }
 
-    // must be done in the swing EDT
-    //noinspection Convert2Lambda
-    SwingUtil.invokeLater(new Runnable() {
-      @Override
-      public void run() {
-        notifyPopup.close();
-      }
-    });
+    this.notifyPopup = null;
+    look = null;
+    notifyPopup.close();
+  }
+
+  /**
+   * The popup was closed. If it is not the popup of this notification anymore (see {@link #hidePopup()}), the notification is not closed.
+   */
+  void onPopupClosed(final INotify popup) {
+    if (popup == notifyPopup) {
+      onClose();
+    }
   }
 
   /**
@@ -475,6 +826,21 @@ class Notify {
   // called when this notification is closed.
   void onClose() {
     notifyPopup = null;
+    look = null;
+    clickHook = null;
+
+    if (group != null) {
+      NotifyGroup.onClosed(this);
+    }
+
+    if (closeHook != null) {
+      closeHook.run();
+      closeHook = null;
+    }
+
+    if (onCloseAction != null) {
+      NotifyCallbacks.dispatch("onClose", onCloseAction, this);
+    }
   }
 }
 
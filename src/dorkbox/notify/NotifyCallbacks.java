@@ -0,0 +1,178 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import dorkbox.util.ActionHandler;
+import dorkbox.util.Property;
+import dorkbox.util.SwingUtil;
+
+import java.awt.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controls where the notification callbacks ({@link Notify#onAction(ActionHandler)} and {@link Notify#onClose(ActionHandler)}) are run.
+ * <p>
+ * By default they run on the swing EDT, which means that a slow callback stops every notification from animating until it is finished. If
+ * the callbacks do I/O (or anything else that is slow), run them on a dedicated thread, or on an executor of your own.
+ * <p>
+ * Every callback is timed, and callbacks that take longer than {@link #SLOW_CALLBACK_MILLIS} are reported.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final
+class NotifyCallbacks {
+
+  /**
+   * Callbacks that take longer than this (in milliseconds) are reported on System.err. 0 disables reporting.
+   */
+  @Property
+  public static int SLOW_CALLBACK_MILLIS = 100;
+
+  // null means the swing EDT
+  private static volatile Executor executor = null;
+  private static ExecutorService dedicatedExecutor = null;
+
+  private static final AtomicLong callbackCount = new AtomicLong();
+  private static final AtomicLong slowCallbackCount = new AtomicLong();
+  private static final AtomicLong totalCallbackNanos = new AtomicLong();
+  private static final AtomicLong maxCallbackNanos = new AtomicLong();
+
+  private
+  NotifyCallbacks() {
+  }
+
+  /**
+   * Runs the callbacks on the swing EDT. This is the default.
+   */
+  public static synchronized void runOnEdt() {
+    setExecutor(null);
+  }
+
+  /**
+   * Runs the callbacks, one at a time, on a thread that is only used for notification callbacks.
+   */
+  public static synchronized void runOnDedicatedThread() {
+    if (dedicatedExecutor == null) {
+      dedicatedExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+          Thread thread = new Thread(runnable, "Notify Callbacks");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+
+    executor = dedicatedExecutor;
+  }
+
+  /**
+   * Runs the callbacks on the specified executor.
+   */
+  public static synchronized void runOn(final Executor executor) {
+    if (executor == null) {
+      throw new NullPointerException("executor");
+    }
+    setExecutor(executor);
+  }
+
+  private static void setExecutor(final Executor executor) {
+    NotifyCallbacks.executor = executor;
+
+    if (dedicatedExecutor != null && executor != dedicatedExecutor) {
+      // whatever is already queued still runs
+      dedicatedExecutor.shutdown();
+      dedicatedExecutor = null;
+    }
+  }
+
+  /**
+   * @return how many callbacks have been run
+   */
+  public static long getCallbackCount() {
+    return callbackCount.get();
+  }
+
+  /**
+   * @return how many callbacks took longer than {@link #SLOW_CALLBACK_MILLIS}
+   */
+  public static long getSlowCallbackCount() {
+    return slowCallbackCount.get();
+  }
+
+  /**
+   * @return the total time (in nanoseconds) spent running callbacks
+   */
+  public static long getTotalCallbackNanos() {
+    return totalCallbackNanos.get();
+  }
+
+  /**
+   * @return the longest time (in nanoseconds) that a single callback took
+   */
+  public static long getMaxCallbackNanos() {
+    return maxCallbackNanos.get();
+  }
+
+  /**
+   * Runs the callback for the notification on the configured executor. This never blocks the caller (unless the callbacks run on the swing
+   * EDT, and this is called on the swing EDT).
+   */
+  static void dispatch(final String name, final ActionHandler<Notify> callback, final Notify notification) {
+    //noinspection Convert2Lambda
+    Runnable timedCallback = new Runnable() {
+      @Override
+      public void run() {
+        long start = System.nanoTime();
+        try {
+          callback.handle(notification);
+        } catch (Throwable e) {
+          e.printStackTrace();
+        } finally {
+          record(name, System.nanoTime() - start);
+        }
+      }
+    };
+
+    Executor executor = NotifyCallbacks.executor;
+    if (executor != null) {
+      executor.execute(timedCallback);
+    } else if (EventQueue.isDispatchThread()) {
+      timedCallback.run();
+    } else {
+      SwingUtil.invokeLater(timedCallback);
+    }
+  }
+
+  private static void record(final String name, final long nanos) {
+    callbackCount.incrementAndGet();
+    totalCallbackNanos.addAndGet(nanos);
+
+    long max;
+    do {
+      max = maxCallbackNanos.get();
+    } while (nanos > max && !maxCallbackNanos.compareAndSet(max, nanos));
+
+    int slowMillis = SLOW_CALLBACK_MILLIS;
+    if (slowMillis > 0 && nanos > slowMillis * 1000000L) {
+      slowCallbackCount.incrementAndGet();
+      System.err.println("Notification callback '" + name + "' took " + (nanos / 1000000L) + "ms on " + Thread.currentThread().getName());
+    }
+  }
+}
@@ -17,7 +17,9 @@ package dorkbox.notify;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings("FieldCanBeLocal")
 class NotifyCanvas extends Canvas {
@@ -30,14 +32,48 @@ class NotifyCanvas extends Canvas {
   private static final int Y_2 = closeY + 11;
   private static final int X_2 = closeX + 11;
 
+  // reasonable position for detecting mouse over
+  private static final Rectangle CLOSE_REGION = new Rectangle(280, 0, 20, 21);
+
   static final int WIDTH = 300;
+  // the default height. Each notification can have it's own height
   static final int HEIGHT = 87;
-  private static final int PROGRESS_HEIGHT = HEIGHT - 2;
+
+  // the layers of the cached image, so that only what changed is rendered again
+  static final int TITLE = 1;
+  static final int TEXT = 2;
+  static final int IMAGE = 4;
+  private static final int ALL = TITLE | TEXT | IMAGE;
+
+  private static final int IMAGE_X = 5;
+  private static final int IMAGE_Y = 30;
 
   private final boolean showCloseButton;
-  private BufferedImage cachedImage;
-  private final Notify notification;
-  private final ImageIcon imageIcon;
+
+  // created when first painted, and can be evicted (see RasterBudget) while the canvas is not showing
+  private volatile BufferedImage cachedImage = null;
+
+  // the device scale (for HiDPI displays) that the cached image was rendered at, so it is drawn 1:1 with the device pixels
+  private double cachedScale = 1.0D;
+  private int cachedHeight = 0;
+
+  // can be changed on the swing EDT while the notification is showing
+  private volatile int height;
+  private volatile boolean released = false;
+
+  // only accessed in the active render thread (after the canvas is created)
+  private String title;
+  private String text;
+  private ImageIcon imageIcon;
+
+  // updates can come from any thread, and are applied (at most once per frame) by the active render thread.
+  private final AtomicInteger changedLayers = new AtomicInteger();
+  private volatile String pendingTitle;
+  private volatile String pendingText;
+  private volatile ImageIcon pendingImageIcon;
+
+  // set from mouse events on the swing EDT, read when painting
+  private volatile boolean closeButtonHovered = false;
 
   // for the progress bar. we directly draw this onscreen
   // non-volatile because it's always accessed in the active render thread
@@ -46,26 +82,200 @@ class NotifyCanvas extends Canvas {
   private final Theme theme;
   final INotify parent;
 
+  // the notification was created from this template (or null)
+  private final NotifyTemplate template;
+
+  // attached notifications are painted by the overlay of their window (they are not part of the component hierarchy)
+  NotifyOverlay overlay = null;
+
+  // not actively rendered (see Notify.INSTANT_LAYOUT), so every change must be repainted. Only set before it is shown
+  boolean passive = false;
+
 
   NotifyCanvas(final INotify parent, final Notify notification, final ImageIcon imageIcon, final Theme theme) {
     this.parent = parent;
-    this.notification = notification;
+    this.title = notification.title;
+    this.text = notification.text;
     this.imageIcon = imageIcon;
     this.theme = theme;
+    this.template = notification.template;
 
-    final Dimension preferredSize = new Dimension(WIDTH, HEIGHT);
-    setPreferredSize(preferredSize);
-    setMaximumSize(preferredSize);
-    setMinimumSize(preferredSize);
-    setSize(WIDTH, HEIGHT);
+    setHeight(notification.height);
 
     setFocusable(false);
 
     setBackground(this.theme.panel_BG);
     showCloseButton = !notification.hideCloseButton;
+  }
+
+  /**
+   * Renders a notification off-screen, which initializes everything that rendering needs (fonts, the HTML renderer for the text, and the
+   * Java2D loops) so that the first notification does not have to. Can be called from any thread.
+   */
+  static void warmup(final Theme theme) {
+    BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    renderBackgroundInfo(image, 1.0D, HEIGHT, ALL, "Notify", "<b>Notify</b> warmup", theme, null);
+    image.flush();
+  }
+
+  /**
+   * Changes the height of the notification. The cached image is rendered again (at the new height) on the next frame.
+   * <p>
+   * only called on the swing EDT thread
+   */
+  void setHeight(final int height) {
+    this.height = height;
+
+    final Dimension preferredSize = new Dimension(WIDTH, height);
+    setPreferredSize(preferredSize);
+    setMaximumSize(preferredSize);
+    setMinimumSize(preferredSize);
+    setSize(WIDTH, height);
+  }
+
+  /**
+   * Changes the content of the notification. This is safe to call from any thread, and no matter how often it is called, the cached image
+   * is only rendered again (once) on the next frame, and only for the layers that changed.
+   *
+   * @param layers which of the title, text, and image have changed
+   */
+  void update(final int layers, final String title, final String text, final ImageIcon imageIcon) {
+    if ((layers & TITLE) != 0) {
+      pendingTitle = title;
+    }
+    if ((layers & TEXT) != 0) {
+      pendingText = text;
+    }
+    if ((layers & IMAGE) != 0) {
+      pendingImageIcon = imageIcon;
+    }
+
+    int current;
+    do {
+      current = changedLayers.get();
+    } while (!changedLayers.compareAndSet(current, current | layers));
+
+    if (passive) {
+      repaintArea();
+    }
+  }
+
+  /**
+   * Repaints the whole canvas (or it's area of the overlay, for attached notifications). Can be called from any thread.
+   */
+  void repaintArea() {
+    if (overlay != null) {
+      overlay.repaint(getX(), getY(), getWidth(), getHeight());
+    } else {
+      repaint();
+    }
+  }
+
+  @Override
+  public void setBounds(final int x, final int y, final int width, final int height) {
+    if (passive && overlay != null) {
+      // the area it leaves must be repainted as well
+      repaintArea();
+      super.setBounds(x, y, width, height);
+      repaintArea();
+    } else {
+      super.setBounds(x, y, width, height);
+    }
+  }
+
+  @Override
+  public void setVisible(final boolean visible) {
+    super.setVisible(visible);
+
+    if (passive && overlay != null) {
+      repaintArea();
+    }
+  }
+
+  @Override
+  public void update(final Graphics g) {
+    // the cached image covers everything, so the background does not have to be cleared first
+    paint(g);
+  }
+
+  // only called by the active render thread
+  private void applyUpdate() {
+    int layers = changedLayers.getAndSet(0);
+    if (layers == 0) {
+      return;
+    }
+
+    if ((layers & TITLE) != 0) {
+      title = pendingTitle;
+    }
+    if ((layers & TEXT) != 0) {
+      text = pendingText;
+    }
+    if ((layers & IMAGE) != 0) {
+      ImageIcon newImageIcon = pendingImageIcon;
+
+      // the text moves when the image is added or removed, and the old text (or image) can be anywhere in the column of the image, so
+      // everything is rendered again
+      if ((newImageIcon == null) != (imageIcon == null)) {
+        layers = ALL;
+      }
+      imageIcon = newImageIcon;
+    }
+
+    // if there is no image, everything is rendered when it is created
+    BufferedImage image = cachedImage;
+    if (image != null) {
+      renderBackgroundInfo(image, cachedScale, cachedHeight, layers, title, text, theme, imageIcon);
+    }
+  }
+
+  // only called by the active render thread
+  private BufferedImage renderImage(final double scale) {
+    final int height = this.height;
+
+    BufferedImage image = RasterBudget.create(this, (int) Math.ceil(WIDTH * scale), (int) Math.ceil(height * scale));
+
+    if (template != null && template.hasStaticLayers(title, imageIcon, theme)) {
+      // only the text is rendered, on top of the (shared) background, title and image of the template
+      renderOnStaticLayers(image, scale, height, template.getStaticLayers(scale, height), text, theme, imageIcon != null);
+    } else {
+      renderBackgroundInfo(image, scale, height, ALL, title, text, theme, imageIcon);
+    }
+    cachedScale = scale;
+    cachedHeight = height;
+    cachedImage = image;
+
+    if (released) {
+      // painted after it was closed
+      RasterBudget.release(this);
+    }
+    return image;
+  }
 
-    // now we setup the rendering of the image
-    cachedImage = renderBackgroundInfo(notification.title, notification.text, this.theme, this.imageIcon);
+  /**
+   * @return true if the notification can currently be seen
+   */
+  boolean isOnScreen() {
+    if (overlay != null) {
+      return isVisible() && overlay.isShowing();
+    }
+    return isShowing();
+  }
+
+  /**
+   * The cached image is dropped to save memory, and is rendered again the next time the canvas is painted.
+   */
+  void evictRaster() {
+    cachedImage = null;
+  }
+
+  /**
+   * The canvas is closed, so it's cached image no longer counts against the memory budget.
+   */
+  void release() {
+    released = true;
+    cachedImage = null;
+    RasterBudget.release(this);
   }
 
   void setProgress(final int progress) {
@@ -78,11 +288,26 @@ class NotifyCanvas extends Canvas {
 
   @Override
   public void paint(final Graphics g) {
+    // the time spent painting is part of the load of a frame (see EdtLoadMonitor)
+    final long start = System.nanoTime();
+
+    // content updates are coalesced, so this happens at most once per frame
+    applyUpdate();
+
     // we cache the text + image (to another image), and then always render the close + progressbar
 
     // use our cached image, so we don't have to re-render text/background/etc
+    // only rendered again when the popup moves to a screen with a different scale
+    final AffineTransform transform = ((Graphics2D) g).getTransform();
+    final double scale = transform.getScaleX();
+
+    BufferedImage image = cachedImage;
+    if (image == null || scale != cachedScale || height != cachedHeight) {
+      image = renderImage(scale);
+    }
+
     try {
-      g.drawImage(cachedImage, 0, 0, null);
+      drawImage(g, image, transform);
     } catch (Exception ignored) {
       // have also seen (happened after screen/PC was "woken up", in Xubuntu 16.04):
       // java.lang.ClassCastException:sun.awt.image.BufImgSurfaceData cannot be cast to sun.java2d.xr.XRSurfaceData at sun.java2d.xr.XRPMBlitLoops.cacheToTmpSurface(XRPMBlitLoops.java:148)
@@ -99,11 +324,11 @@ class NotifyCanvas extends Canvas {
       // at dorkbox.notify.NotifyCanvas.paint(NotifyCanvas.java:92)
 
       // redo the image
-      cachedImage = renderBackgroundInfo(notification.title, notification.text, this.theme, imageIcon);
+      image = renderImage(scale);
 
       // try to draw again
       try {
-        g.drawImage(cachedImage, 0, 0, null);
+        drawImage(g, image, transform);
       } catch (Exception ignored2) {
       }
     }
@@ -112,26 +337,42 @@ class NotifyCanvas extends Canvas {
     Graphics2D g2 = (Graphics2D) g.create();
     try {
       if (showCloseButton) {
-        Graphics2D g3 = (Graphics2D) g.create();
-
-        g3.setColor(theme.panel_BG);
-        g3.setStroke(stroke);
+        g2.setStroke(stroke);
 
-        final Point p = getMousePosition();
-        // reasonable position for detecting mouse over
-        if (p != null && p.getX() >= 280 && p.getY() <= 20) {
-          g3.setColor(Color.RED);
+        // the hover state is tracked from mouse events, see setMousePosition()
+        if (closeButtonHovered) {
+          g2.setColor(Color.RED);
         } else {
-          g3.setColor(theme.closeX_FG);
+          g2.setColor(theme.closeX_FG);
         }
 
         // draw the X
-        g3.drawLine(X_1, Y_1, X_2, Y_2);
-        g3.drawLine(X_2, Y_1, X_1, Y_2);
+        g2.drawLine(X_1, Y_1, X_2, Y_2);
+        g2.drawLine(X_2, Y_1, X_1, Y_2);
       }
 
       g2.setColor(theme.progress_FG);
-      g2.fillRect(0, PROGRESS_HEIGHT, progress, 2);
+      g2.fillRect(0, height - 2, progress, 2);
+    } finally {
+      g2.dispose();
+    }
+
+    EdtLoadMonitor.painted(System.nanoTime() - start);
+  }
+
+  /**
+   * Draws the cached image 1:1 with the device pixels, so that it is never resampled.
+   */
+  private static void drawImage(final Graphics g, final BufferedImage image, final AffineTransform transform) {
+    if (transform.getScaleX() == 1.0D && transform.getScaleY() == 1.0D) {
+      g.drawImage(image, 0, 0, null);
+      return;
+    }
+
+    Graphics2D g2 = (Graphics2D) g.create();
+    try {
+      g2.setTransform(AffineTransform.getTranslateInstance(Math.round(transform.getTranslateX()), Math.round(transform.getTranslateY())));
+      g2.drawImage(image, 0, 0, null);
     } finally {
       g2.dispose();
     }
@@ -141,83 +382,209 @@ class NotifyCanvas extends Canvas {
    * @return TRUE if we were over the 'X' or FALSE if the click was in the general area (and not over the 'X').
    */
   boolean isCloseButton(final int x, final int y) {
-    return showCloseButton && x >= 280 && y <= 20;
+    return showCloseButton && CLOSE_REGION.contains(x, y);
   }
 
-  private static BufferedImage renderBackgroundInfo(final String title,
-                                                    final String notificationText,
-                                                    final Theme theme,
-                                                    final ImageIcon imageIcon) {
+  /**
+   * The mouse moved over the canvas (or left it, if null). Only when the close button changes between hovered and not hovered, is the
+   * close button repainted.
+   * <p>
+   * only called on the swing EDT thread
+   */
+  void setMousePosition(final Point point) {
+    boolean hovered = point != null && isCloseButton(point.x, point.y);
+    if (hovered == closeButtonHovered) {
+      return;
+    }
 
+    closeButtonHovered = hovered;
 
-    BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
-    Graphics2D g2 = image.createGraphics();
-    g2.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
-    g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-    g2.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_QUALITY);
-    g2.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_ENABLE);
-    g2.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-    g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-    g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-    g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+    // desktop notifications are actively rendered, so this only matters for attached notifications
+    if (overlay != null) {
+      overlay.repaint(getX() + CLOSE_REGION.x, getY() + CLOSE_REGION.y, CLOSE_REGION.width, CLOSE_REGION.height);
+    } else {
+      repaint(CLOSE_REGION.x, CLOSE_REGION.y, CLOSE_REGION.width, CLOSE_REGION.height);
+    }
+  }
+
+  /**
+   * Renders the specified layers into the image (which is scaled for the display). Everything else in the image is left as it was.
+   */
+  private static void renderBackgroundInfo(final BufferedImage image,
+                                           final double scale,
+                                           final int height,
+                                           final int layers,
+                                           final String title,
+                                           final String notificationText,
+                                           final Theme theme,
+                                           final ImageIcon imageIcon) {
+
+    Graphics2D g2 = createGraphics(image, scale);
+
+    int textX = imageIcon != null ? 60 : 10;
+
+    if (layers != ALL) {
+      // only the region of the layers that changed is drawn again. Every layer is drawn (clipped), because they can overlap.
+      Rectangle region = null;
+
+      if ((layers & TITLE) != 0) {
+        int descent = g2.getFontMetrics(theme.titleTextFont).getDescent();
+        region = union(region, new Rectangle(0, 0, WIDTH, 20 + descent + 1));
+      }
+      if ((layers & IMAGE) != 0) {
+        region = union(region, new Rectangle(IMAGE_X, IMAGE_Y, Notify.getImageSize(), Notify.getImageSize()));
+      }
+      if ((layers & TEXT) != 0) {
+        region = union(region, new Rectangle(textX, 0, WIDTH - textX, height));
+      }
+
+      g2.setClip(region);
+    }
 
     try {
-      g2.setColor(theme.panel_BG);
-      g2.fillRect(0, 0, WIDTH, HEIGHT);
+      drawStaticLayers(g2, height, title, theme, imageIcon);
+      drawText(g2, height, notificationText, theme, imageIcon != null);
+    } finally {
+      g2.dispose();
+    }
+  }
 
-      // Draw the title text
-      g2.setColor(theme.titleText_FG);
-      g2.setFont(theme.titleTextFont);
-      g2.drawString(title, 5, 20);
+  /**
+   * Renders the layers that do not change between the notifications of a template (the background, title and image) into the image.
+   */
+  static void renderStaticLayers(final BufferedImage image,
+                                 final double scale,
+                                 final int height,
+                                 final String title,
+                                 final Theme theme,
+                                 final ImageIcon imageIcon) {
+    Graphics2D g2 = createGraphics(image, scale);
+    try {
+      drawStaticLayers(g2, height, title, theme, imageIcon);
+    } finally {
+      g2.dispose();
+    }
+  }
 
+  /**
+   * Copies the static layers of the template into the image, and renders only the text on top of them.
+   */
+  private static void renderOnStaticLayers(final BufferedImage image,
+                                           final double scale,
+                                           final int height,
+                                           final BufferedImage staticLayers,
+                                           final String notificationText,
+                                           final Theme theme,
+                                           final boolean hasImage) {
+    Graphics2D g2 = image.createGraphics();
+    try {
+      g2.drawImage(staticLayers, 0, 0, null);
+    } finally {
+      g2.dispose();
+    }
 
-      int posX = 10;
-      int posY = -8;
-      int textLengthLimit = 108;
+    g2 = createGraphics(image, scale);
+    try {
+      drawText(g2, height, notificationText, theme, hasImage);
+    } finally {
+      g2.dispose();
+    }
+  }
 
-      // ICON
-      if (imageIcon != null) {
-        textLengthLimit = 88;
-        posX = 60;
-        // Draw the image
-        imageIcon.paintIcon(null, g2, 5, 30);
-      }
+  private static Graphics2D createGraphics(final BufferedImage image, final double scale) {
+    Graphics2D g2 = image.createGraphics();
 
-      // Draw the main text
-      int length = notificationText.length();
-      StringBuilder text = new StringBuilder(length);
+    if (EdtLoadMonitor.isAtLeast(Degradation.LOW_QUALITY)) {
+      // the EDT is overloaded, so the popup is rendered as fast as possible
+      g2.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
+      g2.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
+      g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+      g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+    } else {
+      g2.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
+      g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      g2.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_QUALITY);
+      g2.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_ENABLE);
+      g2.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+      g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+    }
 
-      // are we "html" already? just check for the starting tag and strip off END html tag
-      if (length >= 13 && notificationText.regionMatches(true, length - 7, "</html>", 0, 7)) {
-        text.append(notificationText);
-        text.delete(text.length() - 7, text.length());
+    // everything is laid out in logical pixels
+    if (scale != 1.0D) {
+      g2.scale(scale, scale);
+    }
 
-        length -= 7;
-      } else {
-        text.append("<html>");
-        text.append(notificationText);
-      }
+    return g2;
+  }
 
-      // make sure the text is the correct length
-      if (length > textLengthLimit) {
-        text.delete(6 + textLengthLimit, text.length());
-        text.append("...");
-      }
-      text.append("</html>");
+  private static void drawStaticLayers(final Graphics2D g2,
+                                       final int height,
+                                       final String title,
+                                       final Theme theme,
+                                       final ImageIcon imageIcon) {
+    g2.setColor(theme.panel_BG);
+    g2.fillRect(0, 0, WIDTH, height);
+
+    // Draw the title text
+    g2.setColor(theme.titleText_FG);
+    g2.setFont(theme.titleTextFont);
+    g2.drawString(title, 5, 20);
+
+    // ICON
+    if (imageIcon != null) {
+      // Draw the image
+      imageIcon.paintIcon(null, g2, IMAGE_X, IMAGE_Y);
+    }
+  }
 
-      JLabel mainTextLabel = new JLabel();
-      mainTextLabel.setForeground(theme.mainText_FG);
-      mainTextLabel.setFont(theme.mainTextFont);
-      mainTextLabel.setText(text.toString());
-      mainTextLabel.setBounds(0, 0, WIDTH - posX - 2, HEIGHT);
+  private static void drawText(final Graphics2D g2,
+                               final int height,
+                               final String notificationText,
+                               final Theme theme,
+                               final boolean hasImage) {
+    int posX = hasImage ? 60 : 10;
+    int posY = -8;
+    int textLengthLimit = hasImage ? 88 : 108;
+
+    // Draw the main text
+    int length = notificationText.length();
+    StringBuilder text = new StringBuilder(length);
+
+    // are we "html" already? just check for the starting tag and strip off END html tag
+    if (length >= 13 && notificationText.regionMatches(true, length - 7, "</html>", 0, 7)) {
+      text.append(notificationText);
+      text.delete(text.length() - 7, text.length());
+
+      length -= 7;
+    } else {
+      text.append("<html>");
+      text.append(notificationText);
+    }
 
-      g2.translate(posX, posY);
-      mainTextLabel.paint(g2);
-      g2.translate(-posX, -posY);
-    } finally {
-      g2.dispose();
+    // make sure the text is the correct length
+    if (length > textLengthLimit) {
+      text.delete(6 + textLengthLimit, text.length());
+      text.append("...");
     }
+    text.append("</html>");
 
-    return image;
+    JLabel mainTextLabel = new JLabel();
+    mainTextLabel.setForeground(theme.mainText_FG);
+    mainTextLabel.setFont(theme.mainTextFont);
+    mainTextLabel.setText(text.toString());
+    mainTextLabel.setBounds(0, 0, WIDTH - posX - 2, height);
+
+    g2.translate(posX, posY);
+    mainTextLabel.paint(g2);
+    g2.translate(-posX, -posY);
+  }
+
+  private static Rectangle union(final Rectangle region, final Rectangle other) {
+    if (region == null) {
+      return other;
+    }
+    return region.union(other);
   }
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import dorkbox.util.SwingUtil;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Commands for popups (close, shake, resize) that can come from any thread, and must run on the swing EDT.
+ * <p>
+ * Instead of a separate EDT task for every command, commands are added (without locking) to a single queue, which is drained by one
+ * task on the EDT. No matter how many commands are added before that task runs, there is only ever one task waiting on the EDT.
+ * <p>
+ * Redundant commands are collapsed when the queue is drained: a popup that is closed is only closed once (and is not shaken or resized
+ * first), and only the last shake and the last resize of a popup are run.
+ */
+final
+class NotifyCommands {
+  private static final int CLOSE = 1;
+  private static final int SHAKE = 2;
+  private static final int RESIZE = 4;
+
+  private static final
+  class Command {
+    final int type;
+
+    // every command of a popup has the same target, so they can be collapsed
+    final INotify target;
+
+    final Runnable task;
+    final LookAndFeel look;
+    final int value1;
+    final int value2;
+
+    Command(final int type, final INotify target, final Runnable task, final LookAndFeel look, final int value1, final int value2) {
+      this.type = type;
+      this.target = target;
+      this.task = task;
+      this.look = look;
+      this.value1 = value1;
+      this.value2 = value2;
+    }
+  }
+
+  private static final ConcurrentLinkedQueue<Command> queue = new ConcurrentLinkedQueue<Command>();
+
+  // is the drain task already waiting on the EDT?
+  private static final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+  // only accessed on the swing EDT
+  private static final ArrayList<Command> batch = new ArrayList<Command>();
+  private static final Map<INotify, Integer> seen = new IdentityHashMap<INotify, Integer>();
+
+  //noinspection Convert2Lambda
+  private static final Runnable drainTask = new Runnable() {
+    @Override
+    public void run() {
+      drain();
+    }
+  };
+
+  private
+  NotifyCommands() {
+  }
+
+  /**
+   * Closes the popup, by running the close task (once) on the swing EDT. Can be called from any thread.
+   */
+  static void close(final INotify popup, final Runnable closeTask) {
+    add(new Command(CLOSE, popup, closeTask, null, 0, 0));
+  }
+
+  /**
+   * Shakes the popup on the swing EDT. Can be called from any thread.
+   */
+  static void shake(final INotify popup, final int durationInMillis, final int amplitude) {
+    add(new Command(SHAKE, popup, null, null, durationInMillis, amplitude));
+  }
+
+  /**
+   * Resizes the popup on the swing EDT. Can be called from any thread.
+   */
+  static void resize(final LookAndFeel look, final int height) {
+    add(new Command(RESIZE, look.getNotify(), null, look, height, 0));
+  }
+
+  private static void add(final Command command) {
+    queue.offer(command);
+
+    if (scheduled.compareAndSet(false, true)) {
+      SwingUtil.invokeLater(drainTask);
+    }
+  }
+
+  /**
+   * Runs every command that is queued, right now. For example, a frame of a virtual clock (see {@link ManualFrameDriver}) closes the
+   * popups that it hid before the next frame.
+   * <p>
+   * only called on the swing EDT
+   */
+  static void drain() {
+    // anything added after this gets a new drain task
+    scheduled.set(false);
+
+    Command command;
+    while ((command = queue.poll()) != null) {
+      batch.add(command);
+    }
+
+    int size = batch.size();
+
+    // only the first close of a target is run
+    for (int i = 0; i < size; i++) {
+      command = batch.get(i);
+      if (command.type == CLOSE) {
+        if (seen.containsKey(command.target)) {
+          batch.set(i, null);
+        } else {
+          seen.put(command.target, CLOSE);
+        }
+      }
+    }
+
+    // newest first, so that only the last shake and resize of a target are run (and nothing is run for a target that is closed)
+    for (int i = size - 1; i >= 0; i--) {
+      command = batch.get(i);
+      if (command == null || command.type == CLOSE) {
+        continue;
+      }
+
+      Integer types = seen.get(command.target);
+      int seenTypes = types != null ? types : 0;
+
+      if ((seenTypes & (CLOSE | command.type)) != 0) {
+        batch.set(i, null);
+      } else {
+        seen.put(command.target, seenTypes | command.type);
+      }
+    }
+
+    try {
+      for (int i = 0; i < size; i++) {
+        command = batch.get(i);
+        if (command == null) {
+          continue;
+        }
+
+        // a command that fails must not stop the commands of the other popups (for example, their closes)
+        try {
+          switch (command.type) {
+            case CLOSE:
+              command.task.run();
+              break;
+            case SHAKE:
+              command.target.shake(command.value1, command.value2);
+              break;
+            case RESIZE:
+              command.look.resize(command.value1);
+              break;
+          }
+        } catch (Throwable e) {
+          e.printStackTrace();
+        }
+      }
+    } finally {
+      batch.clear();
+      seen.clear();
+    }
+  }
+}
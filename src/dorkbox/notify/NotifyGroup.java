@@ -0,0 +1,320 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import javax.swing.Timer;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Notifications that share a group (see {@link Notify#group(String)}) are shown normally, until more than {@link Notify#GROUP_THRESHOLD}
+ * of them arrive within {@link Notify#GROUP_WINDOW_MILLIS}. Then they collapse into a single summary popup, which is kept up-to-date as
+ * members arrive or expire, and which shows all of the members again when it is clicked.
+ * <p>
+ * Everything here is only accessed on the swing EDT.
+ */
+final
+class NotifyGroup {
+  private static final Map<String, NotifyGroup> groups = new HashMap<String, NotifyGroup>();
+
+  private static final
+  class Member {
+    final Notify notify;
+
+    // when it would have been hidden, or 0 if never
+    final long deadline;
+
+    Member(final Notify notify, final long deadline) {
+      this.notify = notify;
+      this.deadline = deadline;
+    }
+  }
+
+  /**
+   * Either tracks the notification as a visible member of it's group, or absorbs it into the summary for the group.
+   *
+   * @return true if the notification was absorbed (and must not be shown by itself)
+   */
+  static boolean absorb(final Notify notify) {
+    NotifyGroup group = groups.get(notify.group);
+    if (group == null) {
+      group = new NotifyGroup(notify.group);
+      groups.put(notify.group, group);
+    }
+
+    return group.add(notify);
+  }
+
+  /**
+   * The notification was closed (by the application) while it was collapsed into the summary of it's group.
+   */
+  static void close(final Notify notify) {
+    NotifyGroup group = groups.get(notify.group);
+    if (group == null) {
+      return;
+    }
+
+    for (int i = 0; i < group.collapsed.size(); i++) {
+      if (group.collapsed.get(i).notify == notify) {
+        group.collapsed.remove(i);
+        notify.onClose();
+        group.collapsedChanged();
+        return;
+      }
+    }
+  }
+
+  /**
+   * A visible member of a group was closed.
+   */
+  static void onClosed(final Notify notify) {
+    NotifyGroup group = groups.get(notify.group);
+    if (group == null) {
+      return;
+    }
+
+    for (int i = 0; i < group.visible.size(); i++) {
+      if (group.visible.get(i).notify == notify) {
+        group.visible.remove(i);
+        break;
+      }
+    }
+
+    group.removeIfUnused();
+  }
+
+
+  private final String key;
+  private final List<Member> visible = new ArrayList<Member>();
+  private final List<Member> collapsed = new ArrayList<Member>();
+
+  // when each of the recent members arrived, oldest first
+  private final LinkedList<Long> arrivals = new LinkedList<Long>();
+
+  private Notify summary = null;
+  private long expandedUntil = 0;
+
+  private final Timer expiryTimer;
+
+  private
+  NotifyGroup(final String key) {
+    this.key = key;
+
+    //noinspection Convert2Lambda
+    expiryTimer = new Timer(0, new ActionListener() {
+      @Override
+      public void actionPerformed(final ActionEvent e) {
+        expire();
+      }
+    });
+    expiryTimer.setRepeats(false);
+  }
+
+  private boolean add(final Notify notify) {
+    long now = System.currentTimeMillis();
+    long deadline = notify.hideAfterDurationInMillis > 0 ? now + notify.hideAfterDurationInMillis : 0;
+    Member member = new Member(notify, deadline);
+
+    while (!arrivals.isEmpty() && arrivals.getFirst() < now - Notify.GROUP_WINDOW_MILLIS) {
+      arrivals.removeFirst();
+    }
+    arrivals.addLast(now);
+
+    if (summary != null) {
+      collapsed.add(member);
+      updateSummary();
+      scheduleExpiry();
+      return true;
+    }
+
+    if (arrivals.size() <= Notify.GROUP_THRESHOLD || now < expandedUntil) {
+      visible.add(member);
+      return false;
+    }
+
+    // too many, too fast. Everything that is showing collapses into the summary
+    for (Member showing : visible) {
+      collapsed.add(showing);
+
+      // it is still part of the group, so it is not closed (which would run it's callbacks)
+      showing.notify.hidePopup();
+    }
+    visible.clear();
+    collapsed.add(member);
+
+    showSummary(notify);
+    scheduleExpiry();
+    return true;
+  }
+
+  private void showSummary(final Notify template) {
+    final Notify summary = Notify.create()
+                                 .position(template.position)
+                                 .setScreen(template.screenNumber)
+                                 .priority(highestPriority());
+    summary.appWindow = template.appWindow;
+    summary.isDark = template.isDark;
+    summary.theme = template.theme;
+
+    // this is not a user callback, so it runs on the EDT (before the click closes the summary) no matter where the callbacks run
+    //noinspection Convert2Lambda
+    summary.clickHook = new Runnable() {
+      @Override
+      public void run() {
+        if (NotifyGroup.this.summary == summary) {
+          expand();
+        }
+      }
+    };
+
+    // closed without expanding, so the members are dismissed along with it
+    //noinspection Convert2Lambda
+    summary.closeHook = new Runnable() {
+      @Override
+      public void run() {
+        if (NotifyGroup.this.summary == summary) {
+          NotifyGroup.this.summary = null;
+          dismiss();
+        }
+      }
+    };
+
+    this.summary = summary;
+    updateSummary();
+    summary.showOnEdt();
+  }
+
+  // if the summary is showing, this is updated in place
+  private void updateSummary() {
+    Notify latest = collapsed.get(collapsed.size() - 1).notify;
+    summary.title(collapsed.size() + " " + key + " notifications")
+           .text(latest.title + ": " + latest.text);
+  }
+
+  private Priority highestPriority() {
+    Priority highest = Priority.LOW;
+    for (Member member : collapsed) {
+      if (member.notify.priority.compareTo(highest) > 0) {
+        highest = member.notify.priority;
+      }
+    }
+    return highest;
+  }
+
+  /**
+   * Shows every collapsed member again, with whatever time they had left. The summary is closed by the click that expanded it.
+   */
+  private void expand() {
+    this.summary = null;
+
+    long now = System.currentTimeMillis();
+    expandedUntil = now + Notify.GROUP_WINDOW_MILLIS;
+    expiryTimer.stop();
+
+    for (Member member : collapsed) {
+      if (member.deadline != 0) {
+        member.notify.hideAfter((int) Math.max(1, member.deadline - now));
+      }
+      visible.add(member);
+      member.notify.showPopup();
+    }
+    collapsed.clear();
+  }
+
+  private void dismiss() {
+    expiryTimer.stop();
+
+    for (Member member : collapsed) {
+      member.notify.onClose();
+    }
+    collapsed.clear();
+
+    removeIfUnused();
+  }
+
+  private void expire() {
+    long now = System.currentTimeMillis();
+
+    for (int i = collapsed.size() - 1; i >= 0; i--) {
+      Member member = collapsed.get(i);
+      if (member.deadline != 0 && member.deadline <= now) {
+        collapsed.remove(i);
+        member.notify.onClose();
+      }
+    }
+
+    collapsedChanged();
+  }
+
+  // the summary is kept up-to-date with the collapsed members, and closes when there are none left
+  private void collapsedChanged() {
+    if (summary == null) {
+      return;
+    }
+
+    if (collapsed.isEmpty()) {
+      Notify summary = this.summary;
+      this.summary = null;
+      summary.close();
+      removeIfUnused();
+    } else {
+      updateSummary();
+      scheduleExpiry();
+    }
+  }
+
+  private void scheduleExpiry() {
+    long next = Long.MAX_VALUE;
+    for (Member member : collapsed) {
+      if (member.deadline != 0 && member.deadline < next) {
+        next = member.deadline;
+      }
+    }
+
+    expiryTimer.stop();
+    if (next != Long.MAX_VALUE) {
+      expiryTimer.setInitialDelay((int) Math.max(0, next - System.currentTimeMillis()));
+      expiryTimer.start();
+    }
+  }
+
+  /**
+   * @return the summary popup of the group, or null if it's members are not collapsed
+   */
+  static Notify getSummary(final String key) {
+    NotifyGroup group = groups.get(key);
+    return group != null ? group.summary : null;
+  }
+
+  /**
+   * @return how many members of the group are collapsed into it's summary
+   */
+  static int getCollapsedCount(final String key) {
+    NotifyGroup group = groups.get(key);
+    return group != null ? group.collapsed.size() : 0;
+  }
+
+  private void removeIfUnused() {
+    if (summary == null && visible.isEmpty() && collapsed.isEmpty()) {
+      groups.remove(key);
+    }
+  }
+}
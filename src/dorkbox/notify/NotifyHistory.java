@@ -0,0 +1,731 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import dorkbox.util.Property;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An append-only log of every notification that was shown, so that notifications which expired while the user was away can be looked at
+ * again (even after a restart).
+ * <p>
+ * The log is split into segment files, which are rotated when they reach {@link #SEGMENT_SIZE} bytes, and the oldest segments are deleted
+ * once there are more than {@link #MAX_SEGMENTS}. Notifications are written in batches on a background thread, and reads use memory-mapped
+ * segments, so the log is never loaded into the heap.
+ *
+ * <pre>
+ * {@code
+ * Notify.setHistory(NotifyHistory.open(new File("notify-history")));
+ * ...
+ * List<NotifyHistory.Entry> missed = Notify.getHistory().getLast(20);
+ * }
+ * </pre>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final
+class NotifyHistory {
+
+  /**
+   * The size (in bytes) that a segment file can grow to before a new segment is started
+   */
+  @Property
+  public static int SEGMENT_SIZE = 8 * 1024 * 1024;
+
+  /**
+   * The maximum number of segment files that are kept. When there are more, the oldest segment is deleted.
+   */
+  @Property
+  public static int MAX_SEGMENTS = 16;
+
+  /**
+   * The maximum number of notifications waiting to be written. If the writer cannot keep up, newer notifications are not recorded.
+   */
+  @Property
+  public static int MAX_QUEUED = 65536;
+
+  /**
+   * A notification that was recorded in the history log.
+   */
+  public static final
+  class Entry {
+    private final long timestamp;
+    private final String title;
+    private final String text;
+    private final String imageName;
+    private final Pos position;
+    private final int screen;
+    private final boolean isDark;
+
+    Entry(final long timestamp, final String title, final String text, final String imageName, final Pos position, final int screen,
+          final boolean isDark) {
+      this.timestamp = timestamp;
+      this.title = title;
+      this.text = text;
+      this.imageName = imageName;
+      this.position = position;
+      this.screen = screen;
+      this.isDark = isDark;
+    }
+
+    /**
+     * @return when the notification was shown, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    public String getTitle() {
+      return title;
+    }
+
+    public String getText() {
+      return text;
+    }
+
+    /**
+     * @return the name of the image that was shown (see {@link Notify#showNotify(String)}), or null if there was none or it was a custom
+     * image.
+     */
+    public String getImageName() {
+      return imageName;
+    }
+
+    public Pos getPosition() {
+      return position;
+    }
+
+    /**
+     * @return the screen that was requested, or {@link Short#MIN_VALUE} if the notification followed the mouse
+     */
+    public int getScreen() {
+      return screen;
+    }
+
+    public boolean isDark() {
+      return isDark;
+    }
+
+    /**
+     * @return a new notification with the same content as this entry, so that it can be shown again.
+     */
+    public Notify toNotify() {
+      Notify notify = Notify.create()
+                            .title(title)
+                            .text(text)
+                            .position(position)
+                            .setScreen(screen);
+      if (isDark) {
+        notify.darkStyle();
+      }
+      return notify;
+    }
+
+    @Override
+    public String toString() {
+      return timestamp + " " + position + " '" + title + "' " + text;
+    }
+  }
+
+  /**
+   * Opens (or creates) the history log in the specified directory.
+   */
+  public static NotifyHistory open(final File directory) throws IOException {
+    return new NotifyHistory(directory);
+  }
+
+
+  // a segment starts with the magic + version, and every record is: [int length][payload][int length]
+  // the trailing length is what lets us read the newest records first.
+  private static final int MAGIC = 0x4E544659; // NTFY
+  private static final int VERSION = 1;
+  // how often someone waiting on the writer checks that it is still running
+  private static final long WRITER_CHECK_MILLIS = 100L;
+
+  private static final int HEADER_SIZE = 8;
+  private static final int FIXED_PAYLOAD_SIZE = 8 + 1 + 1 + 4 + 4 + 4 + 4; // timestamp, position, flags, screen, 3 string lengths
+  private static final int FLAG_DARK = 1;
+
+  private static final String SEGMENT_PREFIX = "history-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+
+  private static final Object STOP = new Object();
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final Pos[] POSITIONS = Pos.values();
+
+  private static final
+  class Segment {
+    final long sequence;
+    final File file;
+
+    // only the active segment changes size. Readers only ever see what has been completely written.
+    volatile long size;
+    long firstTimestamp = Long.MIN_VALUE;
+
+    // sealed segments never change, so their mapping can be reused
+    MappedByteBuffer sealedBuffer;
+
+    Segment(final long sequence, final File file) {
+      this.sequence = sequence;
+      this.file = file;
+    }
+  }
+
+  private final File directory;
+
+  // the newest segment is last. Only modified by the writer, while holding the lock.
+  private final List<Segment> segments = new ArrayList<Segment>();
+
+  private final BlockingQueue<Object> queue;
+  private final Thread writerThread;
+  private volatile boolean closed = false;
+
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  // only accessed by the writer thread
+  private RandomAccessFile activeFile;
+  private FileChannel activeChannel;
+  private ByteBuffer writeBuffer = ByteBuffer.allocate(64 * 1024);
+
+  private
+  NotifyHistory(final File directory) throws IOException {
+    this.directory = directory;
+
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create the history directory: " + directory);
+    }
+
+    File[] files = directory.listFiles(new FileFilter() {
+      @Override
+      public boolean accept(final File file) {
+        String name = file.getName();
+        return file.isFile() && name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+      }
+    });
+
+    if (files != null) {
+      // the sequence is zero-padded hex, so the names sort in order
+      Arrays.sort(files);
+
+      for (File file : files) {
+        String name = file.getName();
+        long sequence;
+        try {
+          sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()), 16);
+        } catch (NumberFormatException e) {
+          continue;
+        }
+
+        Segment segment = new Segment(sequence, file);
+        segment.size = file.length();
+        segments.add(segment);
+      }
+    }
+
+    // the directory can be from a run with a higher limit
+    pruneSegments();
+
+    if (segments.isEmpty()) {
+      startSegment(0L);
+    } else {
+      openActiveSegment(segments.get(segments.size() - 1));
+    }
+
+    queue = new LinkedBlockingQueue<Object>(MAX_QUEUED);
+
+    writerThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        writeLoop();
+      }
+    }, "Notify History Writer");
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  /**
+   * Queues the notification to be written. This never blocks the caller, and is safe to call from the swing EDT.
+   */
+  void record(final Notify notification, final String imageName) {
+    if (closed) {
+      return;
+    }
+
+    Entry entry = new Entry(System.currentTimeMillis(), notification.title, notification.text, imageName, notification.position,
+                            notification.screenNumber, notification.isDark);
+
+    if (!queue.offer(entry)) {
+      droppedCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * @return the number of notifications that were not recorded, because the writer could not keep up.
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Waits until everything that has been recorded so far has been written.
+   *
+   * @throws IllegalStateException if the writer has stopped (so it never would be)
+   */
+  public void flush() throws InterruptedException {
+    if (closed) {
+      return;
+    }
+
+    CountDownLatch latch = new CountDownLatch(1);
+    put(latch);
+
+    while (!latch.await(WRITER_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+      checkWriter();
+    }
+  }
+
+  /**
+   * Writes everything that has been recorded so far, and then closes the log.
+   */
+  public void close() throws InterruptedException {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+
+    // everything queued before this is written, and then the writer stops
+    try {
+      put(STOP);
+    } catch (IllegalStateException ignored) {
+      // the writer has already stopped
+    }
+    writerThread.join();
+  }
+
+  // queues the item for the writer. If the writer has stopped (and the queue is full), this would otherwise wait forever
+  private void put(final Object item) throws InterruptedException {
+    while (!queue.offer(item, WRITER_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+      checkWriter();
+    }
+  }
+
+  private void checkWriter() {
+    if (!writerThread.isAlive()) {
+      throw new IllegalStateException("The history writer has stopped");
+    }
+  }
+
+  /**
+   * @return the most recent notifications (up to 'count' of them), oldest first.
+   */
+  public List<Entry> getLast(final int count) throws IOException {
+    List<Entry> entries = new ArrayList<Entry>(Math.min(count, 1024));
+    if (count <= 0) {
+      return entries;
+    }
+
+    Segment[] snapshot = snapshot();
+
+    for (int i = snapshot.length - 1; i >= 0 && entries.size() < count; i--) {
+      ByteBuffer buffer = map(snapshot[i]);
+      int position = buffer.limit();
+
+      while (position > HEADER_SIZE && entries.size() < count) {
+        int length = buffer.getInt(position - 4);
+        int start = position - 4 - length - 4;
+        if (length < FIXED_PAYLOAD_SIZE || start < HEADER_SIZE) {
+          break;
+        }
+
+        entries.add(decode(buffer, start + 4));
+        position = start;
+      }
+    }
+
+    Collections.reverse(entries);
+    return entries;
+  }
+
+  /**
+   * @return the notifications that were shown from 'fromMillis' (inclusive) to 'toMillis' (exclusive), oldest first.
+   */
+  public List<Entry> getRange(final long fromMillis, final long toMillis) throws IOException {
+    List<Entry> entries = new ArrayList<Entry>();
+    Segment[] snapshot = snapshot();
+
+    for (int i = 0; i < snapshot.length; i++) {
+      // the next segment starts after this one has ended, so we can skip segments without reading them
+      if (i + 1 < snapshot.length) {
+        long nextStart = firstTimestamp(snapshot[i + 1]);
+        if (nextStart != Long.MIN_VALUE && nextStart < fromMillis) {
+          continue;
+        }
+      }
+
+      long start = firstTimestamp(snapshot[i]);
+      if (start != Long.MIN_VALUE && start >= toMillis) {
+        break;
+      }
+
+      ByteBuffer buffer = map(snapshot[i]);
+      int position = HEADER_SIZE;
+      int limit = buffer.limit();
+
+      while (position + 4 <= limit) {
+        int length = buffer.getInt(position);
+        if (length < FIXED_PAYLOAD_SIZE || position + 4 + length + 4 > limit) {
+          break;
+        }
+
+        long timestamp = buffer.getLong(position + 4);
+        if (timestamp >= fromMillis && timestamp < toMillis) {
+          entries.add(decode(buffer, position + 4));
+        }
+
+        position += 4 + length + 4;
+      }
+    }
+
+    return entries;
+  }
+
+  private Segment[] snapshot() {
+    synchronized (segments) {
+      return segments.toArray(new Segment[0]);
+    }
+  }
+
+  private long firstTimestamp(final Segment segment) throws IOException {
+    if (segment.firstTimestamp == Long.MIN_VALUE && segment.size > HEADER_SIZE + 4 + 8) {
+      segment.firstTimestamp = map(segment).getLong(HEADER_SIZE + 4);
+    }
+    return segment.firstTimestamp;
+  }
+
+  private static ByteBuffer map(final Segment segment) throws IOException {
+    MappedByteBuffer sealed = segment.sealedBuffer;
+    if (sealed != null) {
+      return sealed.duplicate();
+    }
+
+    return mapFile(segment);
+  }
+
+  private static MappedByteBuffer mapFile(final Segment segment) throws IOException {
+    long size = segment.size;
+    RandomAccessFile file = new RandomAccessFile(segment.file, "r");
+    try {
+      size = Math.min(size, file.length());
+      return file.getChannel()
+                 .map(FileChannel.MapMode.READ_ONLY, 0, size);
+    } finally {
+      // the mapping stays valid after the channel is closed
+      file.close();
+    }
+  }
+
+  private static Entry decode(final ByteBuffer buffer, int position) {
+    long timestamp = buffer.getLong(position);
+    position += 8;
+
+    int ordinal = buffer.get(position++);
+    int flags = buffer.get(position++);
+
+    int screen = buffer.getInt(position);
+    position += 4;
+
+    String[] strings = new String[3];
+    for (int i = 0; i < strings.length; i++) {
+      int length = buffer.getInt(position);
+      position += 4;
+
+      if (length >= 0) {
+        byte[] bytes = new byte[length];
+        for (int j = 0; j < length; j++) {
+          bytes[j] = buffer.get(position + j);
+        }
+        strings[i] = new String(bytes, UTF_8);
+        position += length;
+      }
+    }
+
+    Pos pos = ordinal >= 0 && ordinal < POSITIONS.length ? POSITIONS[ordinal] : Pos.BOTTOM_RIGHT;
+    return new Entry(timestamp, strings[0], strings[1], strings[2], pos, screen, (flags & FLAG_DARK) != 0);
+  }
+
+  private void writeLoop() {
+    List<Object> batch = new ArrayList<Object>(1024);
+    boolean stop = false;
+
+    while (!stop) {
+      try {
+        batch.add(queue.take());
+      } catch (InterruptedException e) {
+        continue;
+      }
+
+      queue.drainTo(batch, 1023);
+
+      try {
+        writeBatch(batch);
+      } catch (Throwable e) {
+        // only this batch is lost, the writer keeps going
+        e.printStackTrace();
+      } finally {
+        // release anyone waiting for this batch to be written
+        for (Object item : batch) {
+          if (item instanceof CountDownLatch) {
+            ((CountDownLatch) item).countDown();
+          } else if (item == STOP) {
+            stop = true;
+          }
+        }
+
+        batch.clear();
+      }
+    }
+
+    try {
+      activeChannel.force(false);
+      activeFile.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void writeBatch(final List<Object> batch) throws IOException {
+    Segment active = segments.get(segments.size() - 1);
+    writeBuffer.clear();
+
+    for (Object item : batch) {
+      if (!(item instanceof Entry)) {
+        continue;
+      }
+
+      Entry entry = (Entry) item;
+      byte[] title = bytes(entry.title);
+      byte[] text = bytes(entry.text);
+      byte[] imageName = bytes(entry.imageName);
+
+      int length = FIXED_PAYLOAD_SIZE + length(title) + length(text) + length(imageName);
+      int recordSize = 4 + length + 4;
+
+      if (active.size + writeBuffer.position() + recordSize > SEGMENT_SIZE && active.size + writeBuffer.position() > HEADER_SIZE) {
+        writePending(active);
+        active = rotate(active);
+      }
+
+      if (writeBuffer.remaining() < recordSize) {
+        writePending(active);
+
+        if (writeBuffer.capacity() < recordSize) {
+          writeBuffer = ByteBuffer.allocate(recordSize);
+        }
+      }
+
+      writeBuffer.putInt(length);
+      writeBuffer.putLong(entry.timestamp);
+      writeBuffer.put((byte) entry.position.ordinal());
+      writeBuffer.put((byte) (entry.isDark ? FLAG_DARK : 0));
+      writeBuffer.putInt(entry.screen);
+      put(writeBuffer, title);
+      put(writeBuffer, text);
+      put(writeBuffer, imageName);
+      writeBuffer.putInt(length);
+    }
+
+    writePending(active);
+  }
+
+  private void writePending(final Segment active) throws IOException {
+    writeBuffer.flip();
+
+    long position = active.size;
+    while (writeBuffer.hasRemaining()) {
+      position += activeChannel.write(writeBuffer, position);
+    }
+
+    writeBuffer.clear();
+
+    // readers can now see these records
+    active.size = position;
+  }
+
+  private Segment rotate(final Segment previous) throws IOException {
+    activeChannel.force(false);
+    activeFile.close();
+
+    previous.sealedBuffer = mapFile(previous);
+    startSegment(previous.sequence + 1);
+
+    synchronized (segments) {
+      pruneSegments();
+      return segments.get(segments.size() - 1);
+    }
+  }
+
+  // deletes the oldest segments, until there are only MAX_SEGMENTS (the active segment is always kept)
+  private void pruneSegments() {
+    synchronized (segments) {
+      while (segments.size() > Math.max(1, MAX_SEGMENTS)) {
+        Segment oldest = segments.remove(0);
+        oldest.sealedBuffer = null;
+
+        if (!oldest.file.delete()) {
+          // can happen on windows, while the file is still mapped
+          oldest.file.deleteOnExit();
+        }
+      }
+    }
+  }
+
+  private void startSegment(final long sequence) throws IOException {
+    File file = new File(directory, SEGMENT_PREFIX + String.format("%016x", sequence) + SEGMENT_SUFFIX);
+
+    activeFile = new RandomAccessFile(file, "rw");
+    activeFile.setLength(0);
+    activeChannel = activeFile.getChannel();
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC);
+    header.putInt(VERSION);
+    header.flip();
+    activeChannel.write(header, 0);
+
+    Segment segment = new Segment(sequence, file);
+    segment.size = HEADER_SIZE;
+
+    synchronized (segments) {
+      segments.add(segment);
+    }
+  }
+
+  /**
+   * If we crashed while writing, the last record might be incomplete. Everything after the last complete record is discarded.
+   */
+  private void openActiveSegment(final Segment segment) throws IOException {
+    activeFile = new RandomAccessFile(segment.file, "rw");
+    activeChannel = activeFile.getChannel();
+
+    long fileSize = activeChannel.size();
+    if (fileSize < HEADER_SIZE) {
+      activeFile.close();
+      synchronized (segments) {
+        segments.remove(segment);
+      }
+      startSegment(segment.sequence);
+      return;
+    }
+
+    // this is read (not mapped), because a file cannot be truncated while it is mapped on windows
+    RecordScanner scanner = new RecordScanner(activeChannel);
+
+    long position = HEADER_SIZE;
+    while (position + 4 <= fileSize) {
+      int length = scanner.getInt(position);
+      if (length < FIXED_PAYLOAD_SIZE || position + 4 + length + 4 > fileSize || scanner.getInt(position + 4 + length) != length) {
+        break;
+      }
+      position += 4 + length + 4;
+    }
+
+    if (position != fileSize) {
+      activeChannel.truncate(position);
+    }
+    segment.size = position;
+
+    // all of the other segments are sealed
+    synchronized (segments) {
+      for (int i = 0; i < segments.size() - 1; i++) {
+        Segment sealed = segments.get(i);
+        sealed.sealedBuffer = mapFile(sealed);
+      }
+    }
+  }
+
+  /**
+   * Reads the ints of a file through a small window, which moves forward as the file is scanned.
+   */
+  private static final
+  class RecordScanner {
+    private final FileChannel channel;
+    private final ByteBuffer window = ByteBuffer.allocate(64 * 1024);
+    private long windowStart = 0L;
+
+    RecordScanner(final FileChannel channel) {
+      this.channel = channel;
+      window.limit(0);
+    }
+
+    int getInt(final long position) throws IOException {
+      if (position < windowStart || position + 4 > windowStart + window.limit()) {
+        window.clear();
+        windowStart = position;
+
+        while (window.hasRemaining()) {
+          if (channel.read(window, windowStart + window.position()) < 0) {
+            break;
+          }
+        }
+        window.flip();
+
+        if (window.limit() < 4) {
+          throw new IOException("Unexpected end of file at " + position);
+        }
+      }
+
+      return window.getInt((int) (position - windowStart));
+    }
+  }
+
+  private static byte[] bytes(final String string) {
+    if (string == null) {
+      return null;
+    }
+    return string.getBytes(UTF_8);
+  }
+
+  private static int length(final byte[] bytes) {
+    return bytes == null ? 0 : bytes.length;
+  }
+
+  private static void put(final ByteBuffer buffer, final byte[] bytes) {
+    if (bytes == null) {
+      buffer.putInt(-1);
+    } else {
+      buffer.putInt(bytes.length);
+      buffer.put(bytes);
+    }
+  }
+}
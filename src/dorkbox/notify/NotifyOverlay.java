@@ -0,0 +1,202 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Set;
+
+/**
+ * A single lightweight component (in the glass pane of an application window) that paints all of the notifications attached to the
+ * window, from their cached images. The notification canvases themselves are never added to the component hierarchy.
+ * <p>
+ * Only the area of the notifications is part of the overlay (see {@link #contains(int, int)}), so every other mouse event goes to the
+ * application as usual.
+ */
+final
+class NotifyOverlay extends JComponent {
+  private static final long serialVersionUID = 1L;
+
+  private final Set<LookAndFeel> looks;
+
+  // the canvas under the mouse
+  private NotifyCanvas hovered = null;
+
+  // the area that was repainted on the previous frame. Only accessed by the active render thread
+  private boolean dirty = false;
+  private int dirtyX1 = 0;
+  private int dirtyY1 = 0;
+  private int dirtyX2 = 0;
+  private int dirtyY2 = 0;
+
+  NotifyOverlay(final Set<LookAndFeel> looks) {
+    this.looks = looks;
+
+    setOpaque(false);
+    setFocusable(false);
+
+    MouseAdapter mouseListener = new MouseAdapter() {
+      @Override
+      public void mouseReleased(final MouseEvent e) {
+        LookAndFeel look = getLookAt(e.getX(), e.getY());
+        if (look != null) {
+          NotifyCanvas canvas = look.getCanvas();
+          canvas.parent.onClick(e.getX() - canvas.getX(), e.getY() - canvas.getY());
+        }
+      }
+
+      @Override
+      public void mouseMoved(final MouseEvent e) {
+        hover(e.getX(), e.getY());
+      }
+
+      @Override
+      public void mouseDragged(final MouseEvent e) {
+        hover(e.getX(), e.getY());
+      }
+
+      @Override
+      public void mouseEntered(final MouseEvent e) {
+        hover(e.getX(), e.getY());
+      }
+
+      @Override
+      public void mouseExited(final MouseEvent e) {
+        hover(-1, -1);
+      }
+    };
+
+    addMouseListener(mouseListener);
+    addMouseMotionListener(mouseListener);
+  }
+
+  // only called on the swing EDT thread
+  private void hover(final int x, final int y) {
+    LookAndFeel look = getLookAt(x, y);
+    NotifyCanvas canvas = look != null ? look.getCanvas() : null;
+
+    if (hovered != null && hovered != canvas) {
+      hovered.setMousePosition(null);
+    }
+
+    hovered = canvas;
+    if (canvas != null) {
+      canvas.setMousePosition(new Point(x - canvas.getX(), y - canvas.getY()));
+    }
+  }
+
+  @Override
+  public boolean contains(final int x, final int y) {
+    return getLookAt(x, y) != null;
+  }
+
+  private LookAndFeel getLookAt(final int x, final int y) {
+    for (LookAndFeel look : looks) {
+      NotifyCanvas canvas = look.getCanvas();
+      if (canvas.isVisible() &&
+          x >= canvas.getX() && x < canvas.getX() + canvas.getWidth() &&
+          y >= canvas.getY() && y < canvas.getY() + canvas.getHeight()) {
+        return look;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void paint(final Graphics g) {
+    if (!EventQueue.isDispatchThread()) {
+      // this is the active renderer, once per frame. A lightweight component cannot be painted directly (whatever is under it would not
+      // be painted), so swing repaints the area of the notifications instead.
+      repaintNotifications();
+      return;
+    }
+
+    super.paint(g);
+  }
+
+  @Override
+  protected void paintComponent(final Graphics g) {
+    Rectangle clip = g.getClipBounds();
+
+    for (LookAndFeel look : looks) {
+      NotifyCanvas canvas = look.getCanvas();
+      if (!canvas.isVisible()) {
+        continue;
+      }
+
+      int x = canvas.getX();
+      int y = canvas.getY();
+      int width = canvas.getWidth();
+      int height = canvas.getHeight();
+
+      if (clip != null && !clip.intersects(x, y, width, height)) {
+        continue;
+      }
+
+      Graphics g2 = g.create(x, y, width, height);
+      try {
+        canvas.paint(g2);
+      } finally {
+        g2.dispose();
+      }
+    }
+  }
+
+  // only called by the active render thread
+  private void repaintNotifications() {
+    int x1 = Integer.MAX_VALUE;
+    int y1 = Integer.MAX_VALUE;
+    int x2 = Integer.MIN_VALUE;
+    int y2 = Integer.MIN_VALUE;
+
+    for (LookAndFeel look : looks) {
+      NotifyCanvas canvas = look.getCanvas();
+      if (!canvas.isVisible()) {
+        continue;
+      }
+
+      x1 = Math.min(x1, canvas.getX());
+      y1 = Math.min(y1, canvas.getY());
+      x2 = Math.max(x2, canvas.getX() + canvas.getWidth());
+      y2 = Math.max(y2, canvas.getY() + canvas.getHeight());
+    }
+
+    // the area of the previous frame is repainted as well, so that nothing is left behind when a notification moves or closes
+    int repaintX1 = x1;
+    int repaintY1 = y1;
+    int repaintX2 = x2;
+    int repaintY2 = y2;
+
+    if (dirty) {
+      repaintX1 = Math.min(repaintX1, dirtyX1);
+      repaintY1 = Math.min(repaintY1, dirtyY1);
+      repaintX2 = Math.max(repaintX2, dirtyX2);
+      repaintY2 = Math.max(repaintY2, dirtyY2);
+    }
+
+    dirty = x1 < x2;
+    dirtyX1 = x1;
+    dirtyY1 = y1;
+    dirtyX2 = x2;
+    dirtyY2 = y2;
+
+    if (repaintX1 < repaintX2 && repaintY1 < repaintY2) {
+      repaint(repaintX1, repaintY1, repaintX2 - repaintX1, repaintY2 - repaintY1);
+    }
+  }
+}
@@ -0,0 +1,524 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import dorkbox.util.Property;
+
+import javax.swing.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An optional HTTP/JSON server (bound to localhost only), so that other processes can show notifications through this JVM instead of
+ * each starting their own.
+ * <p>
+ * POST a single notification, or an array of them, to <b>/notify</b>. A batch is shown in a single pass on the swing EDT.
+ *
+ * <pre>
+ * {@code
+ * {
+ *   "title": "Title Text",
+ *   "text": "Hello World!",
+ *   "icon": "DialogInfo.png",
+ *   "position": "BOTTOM_RIGHT",
+ *   "screen": 0,
+ *   "hideAfter": 5000,
+ *   "dark": true
+ * }
+ * }
+ * </pre>
+ * Only title and text are required. The response is 202 when accepted, 400 when invalid, and 429 when a stack already has too many
+ * notifications from this server showing (in which case nothing from the request is shown). GET <b>/stats</b> reports the ingest
+ * throughput.
+ * <p>
+ * The limit ({@link #MAX_PENDING_PER_STACK}) is a quota for the notifications of this server. Notifications that the application shows
+ * itself do not count against it, so a request can be accepted for a stack that is already full. Whatever does not fit on the stack is
+ * queued as usual (see {@link Notify#MAX_VISIBLE_PER_STACK}), not rejected.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final
+class NotifyServer {
+
+  /**
+   * The maximum number of notifications (from this server) that can be showing at the same time on a single stack (screen + position).
+   * Notifications that do not specify a screen count against the stack of the screen that the mouse is on, which is where they are shown.
+   * Only the notifications from this server are counted, not the other popups of the stack.
+   */
+  @Property
+  public static int MAX_PENDING_PER_STACK = 32;
+
+  /**
+   * The maximum number of notifications in a single request
+   */
+  @Property
+  public static int MAX_BATCH_SIZE = 256;
+
+  /**
+   * The maximum size of a request, in bytes
+   */
+  @Property
+  public static int MAX_REQUEST_BYTES = 1024 * 1024;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int STATUS_ACCEPTED = 202;
+  private static final int STATUS_BAD_REQUEST = 400;
+  private static final int STATUS_NOT_ALLOWED = 405;
+  private static final int STATUS_TOO_LARGE = 413;
+  private static final int STATUS_TOO_MANY = 429;
+
+  /**
+   * Starts the notification server on localhost.
+   *
+   * @param port the port to listen on, or 0 to choose any free port (see {@link #getPort()})
+   */
+  public static NotifyServer start(final int port) throws IOException {
+    return new NotifyServer(port);
+  }
+
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  // key is the screen + position of the stack
+  private final Map<String, Integer> pendingPerStack = new HashMap<String, Integer>();
+  private int pending = 0;
+
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong acceptedCount = new AtomicLong();
+  private final AtomicLong rejectedCount = new AtomicLong();
+  private final AtomicLong throttledCount = new AtomicLong();
+  private final long startTime;
+
+  private
+  NotifyServer(final int port) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port), 0);
+
+    // requests are handled one at a time. They are small, and the EDT is what limits how fast we can show them.
+    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable runnable) {
+        Thread thread = new Thread(runnable, "Notify Server");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    server.setExecutor(executor);
+
+    //noinspection Convert2Lambda
+    server.createContext("/notify", new HttpHandler() {
+      @Override
+      public void handle(final HttpExchange exchange) throws IOException {
+        try {
+          handleNotify(exchange);
+        } finally {
+          exchange.close();
+        }
+      }
+    });
+
+    //noinspection Convert2Lambda
+    server.createContext("/stats", new HttpHandler() {
+      @Override
+      public void handle(final HttpExchange exchange) throws IOException {
+        try {
+          respond(exchange, 200, getStats());
+        } finally {
+          exchange.close();
+        }
+      }
+    });
+
+    startTime = System.nanoTime();
+    server.start();
+  }
+
+  /**
+   * @return the port that this server is listening on
+   */
+  public int getPort() {
+    return server.getAddress()
+                 .getPort();
+  }
+
+  /**
+   * Stops the server. Notifications that are already showing are not closed.
+   */
+  public void stop() {
+    server.stop(0);
+    executor.shutdown();
+  }
+
+  /**
+   * @return the number of requests received (accepted or not)
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * @return the number of notifications that have been shown
+   */
+  public long getAcceptedCount() {
+    return acceptedCount.get();
+  }
+
+  /**
+   * @return the number of requests that were invalid
+   */
+  public long getRejectedCount() {
+    return rejectedCount.get();
+  }
+
+  /**
+   * @return the number of requests that were refused because a stack was full
+   */
+  public long getThrottledCount() {
+    return throttledCount.get();
+  }
+
+  /**
+   * @return the average number of notifications shown per second, since the server was started
+   */
+  public double getNotificationsPerSecond() {
+    double seconds = (System.nanoTime() - startTime) / 1.0E9D;
+    if (seconds <= 0.0D) {
+      return 0.0D;
+    }
+    return acceptedCount.get() / seconds;
+  }
+
+  /**
+   * @return the number of notifications from this server that are currently showing
+   */
+  public int getPendingCount() {
+    synchronized (pendingPerStack) {
+      return pending;
+    }
+  }
+
+  private String getStats() {
+    return "{\"requests\":" + getRequestCount() +
+           ",\"accepted\":" + getAcceptedCount() +
+           ",\"rejected\":" + getRejectedCount() +
+           ",\"throttled\":" + getThrottledCount() +
+           ",\"pending\":" + getPendingCount() +
+           ",\"acceptedPerSecond\":" + getNotificationsPerSecond() + "}";
+  }
+
+  private void handleNotify(final HttpExchange exchange) throws IOException {
+    requestCount.incrementAndGet();
+
+    if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+      rejectedCount.incrementAndGet();
+      respond(exchange, STATUS_NOT_ALLOWED, error("Only POST is supported"));
+      return;
+    }
+
+    String body = readBody(exchange.getRequestBody());
+    if (body == null) {
+      rejectedCount.incrementAndGet();
+      respond(exchange, STATUS_TOO_LARGE, error("The request is larger than " + MAX_REQUEST_BYTES + " bytes"));
+      return;
+    }
+
+    final List<Notify> notifications;
+    final List<String> stacks;
+    try {
+      Object json = JsonReader.read(body);
+
+      List<?> payloads;
+      if (json instanceof List) {
+        payloads = (List<?>) json;
+      } else {
+        List<Object> single = new ArrayList<Object>(1);
+        single.add(json);
+        payloads = single;
+      }
+
+      if (payloads.isEmpty()) {
+        throw new IllegalArgumentException("No notifications in the request");
+      }
+      if (payloads.size() > MAX_BATCH_SIZE) {
+        throw new IllegalArgumentException("Too many notifications in the request. The maximum is " + MAX_BATCH_SIZE);
+      }
+
+      notifications = new ArrayList<Notify>(payloads.size());
+      stacks = new ArrayList<String>(payloads.size());
+      int mouseScreen = -1;
+
+      for (int i = 0; i < payloads.size(); i++) {
+        Object payload = payloads.get(i);
+        if (!(payload instanceof Map)) {
+          throw new IllegalArgumentException("Notification " + i + " must be a JSON object");
+        }
+
+        try {
+          Notify notify = toNotify((Map<?, ?>) payload);
+
+          // admission is per stack, so the notification is pinned to the screen that it is admitted for (the mouse can move before it
+          // is shown). This is the same key as the stack of a desktop notification.
+          int screenNumber;
+          if (notify.screenNumber == Short.MIN_VALUE) {
+            // the whole request goes to the screen that the mouse is on (which is only looked up once)
+            if (mouseScreen < 0) {
+              mouseScreen = ScreenGeometry.getScreenForNotification(Short.MIN_VALUE).number;
+            }
+            screenNumber = mouseScreen;
+          } else {
+            screenNumber = ScreenGeometry.getScreen(notify.screenNumber).number;
+          }
+          notify.setScreen(screenNumber);
+
+          notifications.add(notify);
+          stacks.add(screenNumber + ":" + notify.position);
+        } catch (IllegalArgumentException e) {
+          throw new IllegalArgumentException("Notification " + i + ": " + e.getMessage());
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      rejectedCount.incrementAndGet();
+      respond(exchange, STATUS_BAD_REQUEST, error(e.getMessage()));
+      return;
+    }
+
+    if (!admit(notifications, stacks)) {
+      throttledCount.incrementAndGet();
+      respond(exchange, STATUS_TOO_MANY, error("Too many notifications are already showing"));
+      return;
+    }
+
+    Notify.showAll(notifications);
+    acceptedCount.addAndGet(notifications.size());
+
+    respond(exchange, STATUS_ACCEPTED, "{\"accepted\":" + notifications.size() + "}");
+  }
+
+  /**
+   * Either all of the notifications in a request are admitted, or none of them are.
+   */
+  private boolean admit(final List<Notify> notifications, final List<String> stacks) {
+    synchronized (pendingPerStack) {
+      Map<String, Integer> requested = new HashMap<String, Integer>();
+      for (String stack : stacks) {
+        Integer count = requested.get(stack);
+        requested.put(stack, count == null ? 1 : count + 1);
+      }
+
+      for (Map.Entry<String, Integer> entry : requested.entrySet()) {
+        Integer current = pendingPerStack.get(entry.getKey());
+        int showing = current == null ? 0 : current;
+
+        if (showing + entry.getValue() > MAX_PENDING_PER_STACK) {
+          return false;
+        }
+      }
+
+      for (int i = 0; i < notifications.size(); i++) {
+        final String stack = stacks.get(i);
+
+        Integer current = pendingPerStack.get(stack);
+        pendingPerStack.put(stack, current == null ? 1 : current + 1);
+        pending++;
+
+        //noinspection Convert2Lambda
+        notifications.get(i).closeHook = new Runnable() {
+          @Override
+          public void run() {
+            release(stack);
+          }
+        };
+      }
+    }
+
+    return true;
+  }
+
+  private void release(final String stack) {
+    synchronized (pendingPerStack) {
+      Integer current = pendingPerStack.get(stack);
+      if (current == null) {
+        return;
+      }
+
+      if (current <= 1) {
+        pendingPerStack.remove(stack);
+      } else {
+        pendingPerStack.put(stack, current - 1);
+      }
+      pending--;
+    }
+  }
+
+  private static Notify toNotify(final Map<?, ?> payload) {
+    Notify notify = Notify.create()
+                          .title(getString(payload, "title", true))
+                          .text(getString(payload, "text", true));
+
+    String icon = getString(payload, "icon", false);
+    if (icon != null) {
+      if (icon.indexOf('/') >= 0 || icon.indexOf('\\') >= 0) {
+        throw new IllegalArgumentException("'icon' must be the name of an image, not a path");
+      }
+
+      ImageIcon image;
+      try {
+        image = Notify.getImage(icon);
+      } catch (RuntimeException e) {
+        image = null;
+      }
+
+      if (image == null) {
+        throw new IllegalArgumentException("'icon' is not a known image: " + icon);
+      }
+      notify.icon(image, icon);
+    }
+
+    String position = getString(payload, "position", false);
+    if (position != null) {
+      try {
+        notify.position(Pos.valueOf(position.toUpperCase()));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("'position' is not a known position: " + position);
+      }
+    }
+
+    Integer screen = getInteger(payload, "screen");
+    if (screen != null) {
+      notify.setScreen(screen);
+    }
+
+    Integer hideAfter = getInteger(payload, "hideAfter");
+    if (hideAfter != null) {
+      if (hideAfter < 0) {
+        throw new IllegalArgumentException("'hideAfter' cannot be negative");
+      }
+      notify.hideAfter(hideAfter);
+    }
+
+    Object dark = payload.get("dark");
+    if (dark != null) {
+      if (!(dark instanceof Boolean)) {
+        throw new IllegalArgumentException("'dark' must be true or false");
+      }
+      if ((Boolean) dark) {
+        notify.darkStyle();
+      }
+    }
+
+    return notify;
+  }
+
+  private static String getString(final Map<?, ?> payload, final String key, final boolean required) {
+    Object value = payload.get(key);
+    if (value == null) {
+      if (required) {
+        throw new IllegalArgumentException("'" + key + "' is required");
+      }
+      return null;
+    }
+
+    if (!(value instanceof String)) {
+      throw new IllegalArgumentException("'" + key + "' must be a string");
+    }
+    return (String) value;
+  }
+
+  private static Integer getInteger(final Map<?, ?> payload, final String key) {
+    Object value = payload.get(key);
+    if (value == null) {
+      return null;
+    }
+
+    if (!(value instanceof Double)) {
+      throw new IllegalArgumentException("'" + key + "' must be a number");
+    }
+
+    double number = (Double) value;
+    if (number != Math.floor(number) || number > Integer.MAX_VALUE || number < Integer.MIN_VALUE) {
+      throw new IllegalArgumentException("'" + key + "' must be a whole number");
+    }
+    return (int) number;
+  }
+
+  /**
+   * @return the body as a string, or null if it is too large
+   */
+  private static String readBody(final InputStream inputStream) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+    byte[] buffer = new byte[4096];
+
+    int read;
+    while ((read = inputStream.read(buffer)) != -1) {
+      body.write(buffer, 0, read);
+
+      if (body.size() > MAX_REQUEST_BYTES) {
+        return null;
+      }
+    }
+
+    return new String(body.toByteArray(), UTF_8);
+  }
+
+  private static String error(final String message) {
+    StringBuilder builder = new StringBuilder(message.length() + 16);
+    builder.append("{\"error\":\"");
+
+    for (int i = 0; i < message.length(); i++) {
+      char c = message.charAt(i);
+      if (c == '"' || c == '\\') {
+        builder.append('\\').append(c);
+      } else if (c < ' ') {
+        builder.append(' ');
+      } else {
+        builder.append(c);
+      }
+    }
+
+    return builder.append("\"}").toString();
+  }
+
+  private static void respond(final HttpExchange exchange, final int status, final String json) throws IOException {
+    byte[] bytes = json.getBytes(UTF_8);
+
+    exchange.getResponseHeaders()
+            .set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+
+    OutputStream outputStream = exchange.getResponseBody();
+    try {
+      outputStream.write(bytes);
+    } finally {
+      outputStream.close();
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import javax.swing.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * An immutable notification, for notifications that only differ in their text. Everything else (title, image, theme, position, size and
+ * so on) is taken from the notification that the template is created from, and the text can have placeholders ({0}, {1}, ...) that are
+ * replaced by the values of each notification.
+ * <p>
+ * The background, title and image of the template are rendered only once (for all of the notifications of the template), so only the text
+ * is rendered for each notification.
+ * <p>
+ * Templates are thread-safe, and can be shared by any number of threads.
+ * <pre>
+ * NotifyTemplate buildFinished = NotifyTemplate.of(Notify.create()
+ *                                                      .title("Build finished")
+ *                                                      .text("{0} finished in {1} seconds")
+ *                                                      .hideAfter(5000));
+ * buildFinished.show("core", 42);
+ * </pre>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final
+class NotifyTemplate {
+  private final Notify prototype;
+  private final String text;
+  private final Theme theme;
+  private final ImageIcon icon;
+
+  // how many different scales, heights and qualities (for example, for displays with a different scale) the static layers are kept for
+  private static final int MAX_STATIC_LAYERS = 4;
+
+  // the static layers are rendered once for each scale and height that they are shown at (and again at full quality, if they were
+  // rendered while the quality was reduced). Copy-on-write, most recently rendered first
+  private volatile StaticLayers[] staticLayers = new StaticLayers[0];
+
+  private static final
+  class StaticLayers {
+    final double scale;
+    final int height;
+
+    // rendered while the EDT was overloaded (see Degradation.LOW_QUALITY)
+    final boolean lowQuality;
+
+    final BufferedImage image;
+
+    StaticLayers(final double scale, final int height, final boolean lowQuality, final BufferedImage image) {
+      this.scale = scale;
+      this.height = height;
+      this.lowQuality = lowQuality;
+      this.image = image;
+    }
+  }
+
+  /**
+   * Creates a template from the settings of the notification. Changing the notification afterwards does not change the template.
+   */
+  public static NotifyTemplate of(final Notify notification) {
+    return new NotifyTemplate(notification);
+  }
+
+  private
+  NotifyTemplate(final Notify notification) {
+    if (notification.title == null) {
+      throw new IllegalArgumentException("A template must have a title");
+    }
+
+    prototype = notification.copy();
+    prototype.template = this;
+
+    // every notification of the template shares the same theme (so they can share the static layers)
+    if (prototype.theme == null) {
+      prototype.theme = Notify.getDefaultTheme(prototype.isDark);
+    }
+
+    text = prototype.text != null ? prototype.text : "";
+    theme = prototype.theme;
+    icon = prototype.getIcon();
+  }
+
+  /**
+   * Creates a notification from the template, with the placeholders of the text replaced by the values. The notification can be changed
+   * before it is shown, but only the text does not cost anything extra to render.
+   */
+  public Notify create(final Object... values) {
+    Notify notification = prototype.copy();
+    notification.text = format(text, values);
+    return notification;
+  }
+
+  /**
+   * Creates a notification from the template (see {@link #create(Object...)}) and shows it.
+   */
+  public Notify show(final Object... values) {
+    Notify notification = create(values);
+    notification.show();
+    return notification;
+  }
+
+  /**
+   * @return true if the notification still looks like the template (the title, image or theme can be changed after it was created)
+   */
+  boolean hasStaticLayers(final String title, final ImageIcon imageIcon, final Theme theme) {
+    return title == prototype.title && imageIcon == icon && theme == this.theme;
+  }
+
+  /**
+   * @return the background, title and image of the template, rendered at the scale and height
+   */
+  BufferedImage getStaticLayers(final double scale, final int height) {
+    // layers that were rendered at low quality are only used while the quality is low, so that an overload does not last for the whole
+    // life of the template. Layers at full quality are always good enough.
+    final boolean lowQuality = EdtLoadMonitor.isAtLeast(Degradation.LOW_QUALITY);
+
+    StaticLayers[] current = this.staticLayers;
+    for (StaticLayers staticLayers : current) {
+      if (staticLayers.scale == scale && staticLayers.height == height && (!staticLayers.lowQuality || lowQuality)) {
+        return staticLayers.image;
+      }
+    }
+
+    // if different threads render this at the same time, they both render the same thing
+    BufferedImage image = new BufferedImage((int) Math.ceil(NotifyCanvas.WIDTH * scale), (int) Math.ceil(height * scale),
+                                            BufferedImage.TYPE_INT_RGB);
+    NotifyCanvas.renderStaticLayers(image, scale, height, prototype.title, theme, icon);
+
+    synchronized (this) {
+      current = this.staticLayers;
+
+      StaticLayers[] updated = new StaticLayers[Math.min(current.length + 1, MAX_STATIC_LAYERS)];
+      updated[0] = new StaticLayers(scale, height, lowQuality, image);
+      System.arraycopy(current, 0, updated, 1, updated.length - 1);
+
+      this.staticLayers = updated;
+    }
+
+    return image;
+  }
+
+  // replaces {0}, {1}, ... with the values. Anything else is left as it is
+  private static String format(final String text, final Object[] values) {
+    if (values == null || values.length == 0 || text.indexOf('{') < 0) {
+      return text;
+    }
+
+    StringBuilder builder = new StringBuilder(text.length() + 16 * values.length);
+    int length = text.length();
+
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+
+      if (c == '{') {
+        int end = i + 1;
+        int index = 0;
+
+        // an index that is too large (or would overflow) is not a placeholder, so parsing stops as soon as it is out of range
+        while (end < length && index < values.length && text.charAt(end) >= '0' && text.charAt(end) <= '9') {
+          index = index * 10 + (text.charAt(end) - '0');
+          end++;
+        }
+
+        if (end > i + 1 && end < length && text.charAt(end) == '}' && index < values.length) {
+          builder.append(values[index]);
+          i = end;
+          continue;
+        }
+      }
+
+      builder.append(c);
+    }
+
+    return builder.toString();
+  }
+}
@@ -15,63 +15,18 @@
  */
 package dorkbox.notify;
 
-import dorkbox.util.ScreenUtil;
-
-import java.awt.*;
-import java.util.ArrayList;
-import java.util.Iterator;
-
 /**
- * Contains a list of notification popups + the Y offset (if any)
+ * Contains a list of notification popups (ordered by priority) + the Y offset (if any), see {@link StackLayout}. It also moves the popups
+ * to their place, and shares the stack with other processes.
  */
-class PopupList {
-  private int offsetY = 0;
-  private ArrayList<LookAndFeel> popups = new ArrayList<LookAndFeel>(4);
-
-  /**
-   * have to adjust for offsets when the window-manager has a toolbar that consumes space and prevents overlap.
-   * <p>
-   * this is only done on the 2nd popup is added to the list
-   */
-  void calculateOffset(final boolean showFromTop, final int anchorX, final int anchorY) {
-    if (offsetY == 0) {
-      Point point = new Point(anchorX, anchorY);
-      GraphicsConfiguration gc = ScreenUtil.getMonitorAtLocation(point)
-              .getDefaultConfiguration();
-
-      Insets screenInsets = Toolkit.getDefaultToolkit()
-              .getScreenInsets(gc);
-
-      if (showFromTop) {
-        if (screenInsets.top > 0) {
-          offsetY = screenInsets.top - LookAndFeel.MARGIN;
-        }
-      } else {
-        if (screenInsets.bottom > 0) {
-          offsetY = screenInsets.bottom + LookAndFeel.MARGIN;
-        }
-      }
-    }
-  }
-
-  int getOffsetY() {
-    return offsetY;
-  }
-
-
-  int size() {
-    return popups.size();
-  }
+class PopupList extends StackLayout<LookAndFeel> {
+  // moves the popups to their slots
+  final StackAnimator animator = new StackAnimator(Notify.MOVE_DURATION);
 
-  void add(final LookAndFeel lookAndFeel) {
-    popups.add(lookAndFeel);
-  }
-
-  Iterator<LookAndFeel> iterator() {
-    return popups.iterator();
-  }
+  // the slot of this stack, when it is shared with other processes (see Notify.SHARED_STACKS)
+  SharedStack sharedStack = null;
 
-  LookAndFeel get(final int index) {
-    return popups.get(index);
+  PopupList(final Pos position) {
+    super(position);
   }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+/**
+ * Higher priority notifications are placed closer to the corner (or center) of the stack, and push lower priority notifications away
+ * from it (or into the queue, if the stack is full).
+ */
+public
+enum Priority {
+  /**
+   * placed after every other notification
+   */
+  LOW,
+
+  /**
+   * the default priority
+   */
+  NORMAL,
+
+  /**
+   * placed before normal and low priority notifications
+   */
+  HIGH,
+
+  /**
+   * always placed closest to the anchor
+   */
+  CRITICAL,
+}
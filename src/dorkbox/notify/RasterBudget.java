@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Creates the cached images for the notification canvases, and keeps the memory used by all of them within
+ * {@link Notify#CANVAS_RASTER_BUDGET}. When over budget, the images of the oldest canvases that are not showing (for example, they are
+ * queued) are evicted. They are rendered again when they are next painted.
+ */
+final
+class RasterBudget {
+  // oldest first
+  private static final Map<NotifyCanvas, Integer> rasters = new LinkedHashMap<NotifyCanvas, Integer>();
+  private static long usedBytes = 0;
+
+  private
+  RasterBudget() {
+  }
+
+  /**
+   * Creates an image in the format specified by {@link Notify#CANVAS_RASTER_FORMAT}, and accounts for it (which can evict the images of
+   * other canvases).
+   */
+  static BufferedImage create(final NotifyCanvas canvas, final int width, final int height) {
+    final BufferedImage image;
+
+    String format = Notify.CANVAS_RASTER_FORMAT;
+    if ("RGB".equalsIgnoreCase(format)) {
+      image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    } else if ("565".equals(format)) {
+      image = new BufferedImage(width, height, BufferedImage.TYPE_USHORT_565_RGB);
+    } else if ("COMPATIBLE".equalsIgnoreCase(format)) {
+      GraphicsConfiguration configuration = canvas.getGraphicsConfiguration();
+      if (configuration != null) {
+        image = configuration.createCompatibleImage(width, height, Transparency.OPAQUE);
+      } else {
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      }
+    } else {
+      image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    allocated(canvas, sizeOf(image));
+    return image;
+  }
+
+  /**
+   * The canvas is closed, so it's image no longer counts against the budget.
+   */
+  static synchronized void release(final NotifyCanvas canvas) {
+    Integer bytes = rasters.remove(canvas);
+    if (bytes != null) {
+      usedBytes -= bytes;
+    }
+  }
+
+  /**
+   * @return how many bytes are used by the images of all of the canvases
+   */
+  static synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  private static synchronized void allocated(final NotifyCanvas canvas, final int bytes) {
+    Integer previous = rasters.remove(canvas);
+    if (previous != null) {
+      usedBytes -= previous;
+    }
+
+    rasters.put(canvas, bytes);
+    usedBytes += bytes;
+
+    final long budget = Notify.CANVAS_RASTER_BUDGET;
+    if (budget <= 0 || usedBytes <= budget) {
+      return;
+    }
+
+    Iterator<Map.Entry<NotifyCanvas, Integer>> iterator = rasters.entrySet().iterator();
+    while (usedBytes > budget && iterator.hasNext()) {
+      Map.Entry<NotifyCanvas, Integer> entry = iterator.next();
+      NotifyCanvas other = entry.getKey();
+
+      if (other != canvas && !other.isOnScreen()) {
+        other.evictRaster();
+        usedBytes -= entry.getValue();
+        iterator.remove();
+      }
+    }
+  }
+
+  private static int sizeOf(final BufferedImage image) {
+    DataBuffer buffer = image.getRaster().getDataBuffer();
+    return buffer.getSize() * buffer.getNumBanks() * (DataBuffer.getDataTypeSize(buffer.getDataType()) / 8);
+  }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import dorkbox.util.SwingUtil;
+
+import java.awt.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Caches the bounds, insets and numbering of every monitor.
+ * <p>
+ * Asking AWT for the screen devices, their bounds or their insets is a synchronous round trip to the window system (on X11 especially),
+ * so we do it once and then only again when the display configuration changes. When that happens, all of the desktop stacks are
+ * re-anchored to the new geometry.
+ * <p>
+ * Changes are checked for while there are desktop stacks (see {@link #startWatching()}), because nothing depends on the geometry otherwise.
+ * Where the graphics environment can tell us that the displays changed, that is noticed right away, but the insets (for example, a
+ * taskbar that moved) are only ever noticed by checking.
+ */
+final
+class ScreenGeometry {
+  /**
+   * The cached geometry of a single monitor. These values must never be modified.
+   */
+  static final
+  class Screen {
+    final int number;
+    final Rectangle bounds;
+    final Insets insets;
+
+    Screen(final int number, final Rectangle bounds, final Insets insets) {
+      this.number = number;
+      this.bounds = bounds;
+      this.insets = insets;
+    }
+
+    boolean sameGeometry(final Screen other) {
+      return number == other.number && bounds.equals(other.bounds) && insets.equals(other.insets);
+    }
+  }
+
+  // how often we check for changes, while there are desktop stacks
+  private static final long POLL_INTERVAL_MILLIS = 5000L;
+
+  private static final Object lock = new Object();
+  private static volatile Screen[] screens = null;
+
+  // the display change listener must be strongly referenced, the graphics environment only keeps a weak reference to it.
+  private static Object displayChangedListener = null;
+
+  // checks for changes while there are desktop stacks. Only accessed while holding the lock
+  private static Thread pollThread = null;
+
+  private
+  ScreenGeometry() {
+  }
+
+  /**
+   * @return all of the monitors, in the order that AWT numbers them
+   */
+  static Screen[] getScreens() {
+    Screen[] current = screens;
+    if (current == null) {
+      synchronized (lock) {
+        current = screens;
+        if (current == null) {
+          current = load();
+          screens = current;
+          watchForChanges();
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * @return the monitor for the specified number. If < 0, this is the first monitor. If > max-screens, this is the last monitor.
+   */
+  static Screen getScreen(int screenNumber) {
+    Screen[] current = getScreens();
+
+    if (screenNumber < 0) {
+      screenNumber = 0;
+    } else if (screenNumber > current.length - 1) {
+      screenNumber = current.length - 1;
+    }
+
+    return current[screenNumber];
+  }
+
+  /**
+   * @return the monitor that contains the specified location, or the first monitor if no monitor contains it.
+   */
+  static Screen getScreenAtLocation(final int x, final int y) {
+    Screen[] current = getScreens();
+
+    for (Screen screen : current) {
+      if (screen.bounds.contains(x, y)) {
+        return screen;
+      }
+    }
+
+    return current[0];
+  }
+
+  static Screen getScreenAtLocation(final Point point) {
+    return getScreenAtLocation(point.x, point.y);
+  }
+
+  /**
+   * @return the monitor that a desktop notification for the screen number is shown on. If the screen number is not specified
+   * ({@link Short#MIN_VALUE}), this is the monitor with the mouse on it (or the first monitor, if there is no mouse).
+   */
+  static Screen getScreenForNotification(final int screenNumber) {
+    if (screenNumber == Short.MIN_VALUE) {
+      // set screen position based on mouse
+      PointerInfo pointerInfo = MouseInfo.getPointerInfo();
+      if (pointerInfo == null) {
+        // there is no mouse (or it cannot be found), so it is the first monitor
+        return getScreen(0);
+      }
+
+      return getScreenAtLocation(pointerInfo.getLocation());
+    } else {
+      // set screen position based on specified screen
+      return getScreen(screenNumber);
+    }
+  }
+
+  /**
+   * Reloads the geometry of all monitors. If anything changed, the desktop stacks are re-anchored (on the Swing EDT).
+   */
+  static void refresh() {
+    Screen[] previous;
+    Screen[] current = load();
+
+    synchronized (lock) {
+      previous = screens;
+      screens = current;
+    }
+
+    if (previous != null && !isSame(previous, current)) {
+      //noinspection Convert2Lambda
+      SwingUtil.invokeLater(new Runnable() {
+        @Override
+        public void run() {
+          LookAndFeel.reAnchorDesktopStacks();
+        }
+      });
+    }
+  }
+
+  private static boolean isSame(final Screen[] previous, final Screen[] current) {
+    if (previous.length != current.length) {
+      return false;
+    }
+
+    for (int i = 0; i < current.length; i++) {
+      if (!previous[i].sameGeometry(current[i])) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static Screen[] load() {
+    GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
+    GraphicsDevice[] screenDevices = ge.getScreenDevices();
+    Toolkit toolkit = Toolkit.getDefaultToolkit();
+
+    Screen[] loaded = new Screen[screenDevices.length];
+    for (int i = 0; i < screenDevices.length; i++) {
+      GraphicsConfiguration gc = screenDevices[i].getDefaultConfiguration();
+      loaded[i] = new Screen(i, gc.getBounds(), toolkit.getScreenInsets(gc));
+    }
+
+    return loaded;
+  }
+
+  /**
+   * There are desktop stacks, so changes to the geometry must be noticed. The geometry is checked right away (it might have changed while
+   * nothing was showing), and then every few seconds until {@link #stopWatching()}.
+   */
+  static void startWatching() {
+    synchronized (lock) {
+      if (pollThread != null) {
+        return;
+      }
+
+      //noinspection Convert2Lambda
+      pollThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          poll();
+        }
+      }, "Notify Screen Watcher");
+      pollThread.setDaemon(true);
+      pollThread.start();
+    }
+  }
+
+  /**
+   * There are no more desktop stacks, so nothing depends on the geometry until the next one.
+   */
+  static void stopWatching() {
+    synchronized (lock) {
+      if (pollThread != null) {
+        pollThread.interrupt();
+        pollThread = null;
+      }
+    }
+  }
+
+  private static void poll() {
+    boolean reported = false;
+
+    while (true) {
+      synchronized (lock) {
+        if (pollThread != Thread.currentThread()) {
+          return;
+        }
+      }
+
+      try {
+        refresh();
+      } catch (Exception e) {
+        // the same thing usually fails every time, so it is only reported once
+        if (!reported) {
+          reported = true;
+          e.printStackTrace();
+        }
+      }
+
+      try {
+        Thread.sleep(POLL_INTERVAL_MILLIS);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * The graphics environment knows when the displays change, but that is not part of the public API (and cannot be reached at all after
+   * java 8). Either way, we also check for changes (off the EDT) while there are desktop stacks, see {@link #startWatching()}.
+   */
+  private static void watchForChanges() {
+    // the listener is in a package that is not exported after java 8, so reflecting into it only fails (or warns) there
+    String version = System.getProperty("java.specification.version", "");
+    if (!version.startsWith("1.")) {
+      return;
+    }
+
+    try {
+      GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
+      Class<?> listenerClass = Class.forName("sun.awt.DisplayChangedListener");
+      Method addListener = ge.getClass().getMethod("addDisplayChangedListener", listenerClass);
+
+      //noinspection Convert2Lambda
+      Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader(), new Class<?>[] {listenerClass}, new InvocationHandler() {
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+          String name = method.getName();
+          if (name.equals("displayChanged")) {
+            refresh();
+          } else if (name.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+          } else if (name.equals("equals")) {
+            return proxy == args[0];
+          } else if (name.equals("toString")) {
+            return "Notify display listener";
+          }
+          return null;
+        }
+      });
+
+      addListener.invoke(ge, listener);
+      displayChangedListener = listener;
+    } catch (Throwable ignored) {
+      // not available on this JVM
+    }
+  }
+}
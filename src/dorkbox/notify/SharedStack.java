@@ -0,0 +1,212 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+/**
+ * Shares a stack (screen + position) of desktop popups with the other processes (on the same desktop) that use notifications, so that
+ * their stacks are placed one after the other instead of on top of each other. See {@link Notify#SHARED_STACKS}.
+ * <p>
+ * Every stack has a small memory-mapped file (in the temp directory) with a table of slots, and each process that is showing popups on
+ * that stack holds one of the slots. A slot is claimed by locking it's region of the file (the OS releases the lock if the process dies),
+ * and the process writes the height of it's stack and a heartbeat into it. The stack of a process is placed after the stacks of every
+ * process in a lower slot, and slots that have not had a heartbeat for a while (for example, the process crashed) are ignored.
+ * <p>
+ * There is no daemon and no socket, every process only reads and writes the table. Everything here is only accessed on the swing EDT.
+ */
+final
+class SharedStack {
+  private static final int SLOTS = 16;
+
+  // long heartbeat, int height (height + spacer of every visible popup), int unused
+  private static final int SLOT_SIZE = 16;
+
+  private static final int HEARTBEAT_MILLIS = 500;
+
+  // a slot without a heartbeat for this long belongs to a process that is gone (or stuck)
+  private static final int STALE_MILLIS = HEARTBEAT_MILLIS * 4;
+
+  private static int claimed = 0;
+
+  //noinspection Convert2Lambda
+  private static final Timer timer = new Timer(HEARTBEAT_MILLIS, new ActionListener() {
+    @Override
+    public void actionPerformed(final ActionEvent e) {
+      LookAndFeel.refreshSharedStacks();
+    }
+  });
+
+  /**
+   * Claims a slot in the shared stack for the screen and position.
+   *
+   * @return the claimed slot, or null if the stack cannot be shared (which is reported on System.err), or all of the slots are taken
+   */
+  static SharedStack claim(final int screenNumber, final Pos position) {
+    File file = new File(System.getProperty("java.io.tmpdir"), "dorkbox-notify-" + screenNumber + "-" + position + ".stack");
+
+    RandomAccessFile randomAccessFile = null;
+    try {
+      randomAccessFile = new RandomAccessFile(file, "rw");
+      if (randomAccessFile.length() < SLOTS * SLOT_SIZE) {
+        randomAccessFile.setLength(SLOTS * SLOT_SIZE);
+      }
+
+      FileChannel channel = randomAccessFile.getChannel();
+      MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_WRITE, 0, SLOTS * SLOT_SIZE);
+
+      // new stacks are placed after the stacks that are already showing (so they don't move), and only wrap around when there is no room
+      long now = System.currentTimeMillis();
+      int last = -1;
+      for (int slot = 0; slot < SLOTS; slot++) {
+        if (isAlive(table, slot, now)) {
+          last = slot;
+        }
+      }
+
+      for (int i = 1; i <= SLOTS; i++) {
+        int slot = (last + i) % SLOTS;
+
+        FileLock lock;
+        try {
+          lock = channel.tryLock((long) slot * SLOT_SIZE, SLOT_SIZE, false);
+        } catch (OverlappingFileLockException ignored) {
+          // held by this process (from a different classloader)
+          lock = null;
+        }
+
+        if (lock != null) {
+          claimed++;
+          if (!timer.isRunning()) {
+            timer.start();
+          }
+
+          SharedStack sharedStack = new SharedStack(randomAccessFile, table, lock, slot);
+          sharedStack.refresh();
+          return sharedStack;
+        }
+      }
+
+      randomAccessFile.close();
+      return null;
+    } catch (IOException e) {
+      System.err.println("Unable to share the notification stack using '" + file + "'. " + e.getMessage());
+
+      if (randomAccessFile != null) {
+        try {
+          randomAccessFile.close();
+        } catch (IOException ignored) {
+        }
+      }
+      return null;
+    }
+  }
+
+  private static boolean isAlive(final MappedByteBuffer table, final int slot, final long now) {
+    long heartbeat = table.getLong(slot * SLOT_SIZE);
+    return heartbeat != 0 && now - heartbeat < STALE_MILLIS && table.getInt(slot * SLOT_SIZE + 8) > 0;
+  }
+
+
+  private final RandomAccessFile file;
+  private final MappedByteBuffer table;
+  private final FileLock lock;
+  private final int slot;
+
+  private int height = 0;
+  private int offset = 0;
+
+  private
+  SharedStack(final RandomAccessFile file, final MappedByteBuffer table, final FileLock lock, final int slot) {
+    this.file = file;
+    this.table = table;
+    this.lock = lock;
+    this.slot = slot;
+  }
+
+  /**
+   * The total space (height + spacer) taken by the visible popups of this process
+   */
+  void setHeight(final int height) {
+    if (this.height != height) {
+      this.height = height;
+      table.putInt(slot * SLOT_SIZE + 8, height);
+    }
+  }
+
+  /**
+   * @return the space taken by the stacks of the processes before this one, as of the last {@link #refresh()}
+   */
+  int getOffset() {
+    return offset;
+  }
+
+  /**
+   * Writes the heartbeat of this process, and reads the stacks of the other processes.
+   *
+   * @return true if the stacks before this one changed size (so the popups of this process must move)
+   */
+  boolean refresh() {
+    heartbeat();
+
+    long now = System.currentTimeMillis();
+    int offset = 0;
+    for (int other = 0; other < slot; other++) {
+      if (isAlive(table, other, now)) {
+        offset += table.getInt(other * SLOT_SIZE + 8);
+      }
+    }
+
+    if (this.offset != offset) {
+      this.offset = offset;
+      return true;
+    }
+    return false;
+  }
+
+  private void heartbeat() {
+    table.putLong(slot * SLOT_SIZE, System.currentTimeMillis());
+  }
+
+  /**
+   * There are no more popups on the stack, so the slot is given to the other processes.
+   */
+  void release() {
+    table.putInt(slot * SLOT_SIZE + 8, 0);
+    table.putLong(slot * SLOT_SIZE, 0L);
+
+    try {
+      lock.release();
+      file.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+
+    claimed--;
+    if (claimed == 0) {
+      timer.stop();
+    }
+  }
+}
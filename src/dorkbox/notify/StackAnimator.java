@@ -0,0 +1,216 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import java.util.Arrays;
+
+/**
+ * Moves every popup of a stack to it's slot. The current and target Y of each popup are kept in primitive arrays (in the same order as the
+ * stack), and every moving popup is advanced in a single loop per frame.
+ * <p>
+ * A layout is written into a second set of arrays (carrying over the position of popups that are already moving), which are then swapped
+ * with the current ones, so retargeting popups mid-flight does not allocate unless the stack grows.
+ * <p>
+ * Layouts happen on the swing EDT, and steps happen on the active-render thread.
+ */
+final
+class StackAnimator {
+  private final float durationInSeconds;
+
+  private int size = 0;
+  private LookAndFeel[] looks = new LookAndFeel[4];
+  private float[] currentY = new float[4];
+  private float[] targetY = new float[4];
+  private float[] speed = new float[4]; // pixels per second
+
+  private int nextSize = 0;
+  private LookAndFeel[] nextLooks = new LookAndFeel[4];
+  private float[] nextCurrentY = new float[4];
+  private float[] nextTargetY = new float[4];
+  private float[] nextSpeed = new float[4];
+
+  // how many popups have not reached their target yet
+  private int moving = 0;
+
+  StackAnimator(final float durationInSeconds) {
+    this.durationInSeconds = durationInSeconds;
+  }
+
+  /**
+   * Starts a new layout of the stack, which must then have every popup (in order) from the first displaced index added to it, and then be
+   * finished with {@link #endLayout()}. The popups before that index keep whatever they are doing.
+   */
+  synchronized
+  void beginLayout(final int count, final int keepCount) {
+    if (nextLooks.length < count) {
+      int length = Math.max(count, nextLooks.length * 2);
+      nextLooks = new LookAndFeel[length];
+      nextCurrentY = new float[length];
+      nextTargetY = new float[length];
+      nextSpeed = new float[length];
+    }
+    nextSize = count;
+
+    int keep = Math.min(keepCount, size);
+    System.arraycopy(looks, 0, nextLooks, 0, keep);
+    System.arraycopy(currentY, 0, nextCurrentY, 0, keep);
+    System.arraycopy(targetY, 0, nextTargetY, 0, keep);
+    System.arraycopy(speed, 0, nextSpeed, 0, keep);
+  }
+
+  /**
+   * The popup is placed directly at the Y position
+   */
+  synchronized
+  void place(final int index, final LookAndFeel look, final int y) {
+    nextLooks[index] = look;
+    nextCurrentY[index] = y;
+    nextTargetY[index] = y;
+    nextSpeed[index] = 0.0F;
+  }
+
+  /**
+   * The popup does not move (for example, it is queued)
+   */
+  synchronized
+  void hold(final int index, final LookAndFeel look) {
+    place(index, look, look.getY());
+  }
+
+  /**
+   * The popup moves to the Y position, starting from wherever it currently is. If it is already moving to the same position, it
+   * continues as before.
+   */
+  synchronized
+  void moveTo(final int index, final int previousIndex, final LookAndFeel look, final int y) {
+    float current;
+    float previousTarget;
+    float previousSpeed;
+
+    if (previousIndex >= 0 && previousIndex < size && looks[previousIndex] == look) {
+      current = currentY[previousIndex];
+      previousTarget = targetY[previousIndex];
+      previousSpeed = speed[previousIndex];
+    } else {
+      current = (float) look.getY();
+      previousTarget = current;
+      previousSpeed = 0.0F;
+    }
+
+    nextLooks[index] = look;
+    nextCurrentY[index] = current;
+    nextTargetY[index] = y;
+
+    if (previousTarget == y && previousSpeed > 0.0F) {
+      nextSpeed[index] = previousSpeed;
+    } else if (durationInSeconds > 0.0F && !EdtLoadMonitor.isAtLeast(Degradation.INSTANT_MOVES)) {
+      nextSpeed[index] = Math.abs(y - current) / durationInSeconds;
+    } else {
+      // no animation, so it arrives on the next step
+      nextSpeed[index] = Float.MAX_VALUE;
+    }
+  }
+
+  /**
+   * Swaps in the new layout.
+   */
+  synchronized
+  void endLayout() {
+    LookAndFeel[] looks = this.looks;
+    float[] currentY = this.currentY;
+    float[] targetY = this.targetY;
+    float[] speed = this.speed;
+
+    this.looks = nextLooks;
+    this.currentY = nextCurrentY;
+    this.targetY = nextTargetY;
+    this.speed = nextSpeed;
+
+    nextLooks = looks;
+    nextCurrentY = currentY;
+    nextTargetY = targetY;
+    nextSpeed = speed;
+
+    // don't keep closed popups alive
+    Arrays.fill(nextLooks, 0, size, null);
+
+    size = nextSize;
+    nextSize = 0;
+
+    moving = 0;
+    for (int i = 0; i < size; i++) {
+      if (this.currentY[i] != this.targetY[i]) {
+        moving++;
+      }
+    }
+  }
+
+  /**
+   * Places the popup directly at the Y position, for example when it's parent window moves.
+   */
+  synchronized
+  void snap(final int index, final LookAndFeel look, final int y) {
+    if (index < size && looks[index] == look) {
+      if (currentY[index] != targetY[index]) {
+        moving--;
+      }
+
+      currentY[index] = y;
+      targetY[index] = y;
+      speed[index] = 0.0F;
+    }
+  }
+
+  /**
+   * Advances every moving popup of the stack, and moves them to their new position.
+   * <p>
+   * only called on the active-render thread
+   */
+  synchronized
+  void step(final long deltaInNanos) {
+    if (moving == 0) {
+      return;
+    }
+
+    final float deltaInSeconds = deltaInNanos / 1.0E9F;
+    final LookAndFeel[] looks = this.looks;
+    final float[] currentY = this.currentY;
+    final float[] targetY = this.targetY;
+    final float[] speed = this.speed;
+
+    for (int i = 0; i < size; i++) {
+      float current = currentY[i];
+      float target = targetY[i];
+      if (current == target) {
+        continue;
+      }
+
+      float distance = speed[i] * deltaInSeconds;
+      if (current < target) {
+        current = Math.min(target, current + distance);
+      } else {
+        current = Math.max(target, current - distance);
+      }
+
+      currentY[i] = current;
+      if (current == target) {
+        moving--;
+      }
+
+      looks[i].setY((int) current);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+/**
+ * A popup, as far as the stacking rules are concerned (see {@link StackLayout})
+ */
+class StackEntry {
+  // higher priority popups are placed closer to the anchor
+  final int priority;
+
+  // the height of the popup, which can change while it is showing
+  int height;
+
+  // the slot of the popup in the stack, see StackLayout
+  int stackSlot = -1;
+
+  // where the first popup of the stack is placed, see StackLayout.getAnchorX/getAnchorY
+  volatile int anchorX;
+  volatile int anchorY;
+
+  StackEntry(final int priority, final int height) {
+    this.priority = priority;
+    this.height = height;
+  }
+}
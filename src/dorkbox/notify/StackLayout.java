@@ -0,0 +1,441 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * The stacking rules of the popups of a single stack (screen + position), as a model without any windows: popups are added, removed and
+ * resized, and the model has the target position of each of them. Swing (see {@link LookAndFeel}) only moves the windows to where the
+ * model places them.
+ * <p>
+ * The popups are ordered by priority. The popups of each priority are kept in arrival order, each in it's own slot of a Fenwick tree (of
+ * heights, and of counts), so the index of a popup and the space taken by the popups before it are found in O(log n), and adding,
+ * removing or resizing a popup only updates O(log n) sums.
+ */
+class StackLayout<T extends StackEntry> {
+  static final int SPACER = 10;
+  static final int MARGIN = 20;
+
+  private final boolean showFromTop;
+
+  private int offsetY = 0;
+
+  // the space taken by whatever is before this stack (for example, the stacks of other processes)
+  private int stackOffset = 0;
+
+  private ArrayList<T> popups = new ArrayList<T>(4);
+
+  // highest priority first
+  private final Level[] levels = new Level[Priority.values().length];
+
+  /**
+   * A Fenwick (binary indexed) tree, for prefix sums that can be updated in O(log n)
+   */
+  private static final
+  class Fenwick {
+    private final int[] tree;
+
+    Fenwick(final int capacity) {
+      tree = new int[capacity + 1];
+    }
+
+    void add(final int slot, final int delta) {
+      for (int i = slot + 1; i < tree.length; i += i & -i) {
+        tree[i] += delta;
+      }
+    }
+
+    /**
+     * @return the sum of every slot before this one
+     */
+    int sumBefore(final int slot) {
+      int sum = 0;
+      for (int i = slot; i > 0; i -= i & -i) {
+        sum += tree[i];
+      }
+      return sum;
+    }
+  }
+
+  /**
+   * The popups of a single priority, in arrival order. Slots are never reused, and are compacted when they run out.
+   */
+  private static final
+  class Level {
+    final int priority;
+
+    Fenwick heights;
+    Fenwick counts;
+    int[] slotHeights;
+
+    int nextSlot = 0;
+    int count = 0;
+    int totalHeight = 0;
+
+    Level(final int priority, final int capacity) {
+      this.priority = priority;
+      allocate(capacity);
+    }
+
+    void allocate(final int capacity) {
+      heights = new Fenwick(capacity);
+      counts = new Fenwick(capacity);
+      slotHeights = new int[capacity];
+      nextSlot = 0;
+      count = 0;
+      totalHeight = 0;
+    }
+
+    int capacity() {
+      return slotHeights.length;
+    }
+
+    void insert(final StackEntry look) {
+      int slot = nextSlot++;
+      int height = look.height + SPACER;
+
+      look.stackSlot = slot;
+      slotHeights[slot] = height;
+      heights.add(slot, height);
+      counts.add(slot, 1);
+
+      count++;
+      totalHeight += height;
+    }
+
+    void remove(final StackEntry look) {
+      int slot = look.stackSlot;
+      int height = slotHeights[slot];
+
+      look.stackSlot = -1;
+      slotHeights[slot] = 0;
+      heights.add(slot, -height);
+      counts.add(slot, -1);
+
+      count--;
+      totalHeight -= height;
+    }
+
+    void resize(final StackEntry look) {
+      int slot = look.stackSlot;
+      int height = look.height + SPACER;
+      int delta = height - slotHeights[slot];
+
+      slotHeights[slot] = height;
+      heights.add(slot, delta);
+      totalHeight += delta;
+    }
+  }
+
+  StackLayout(final Pos position) {
+    showFromTop = isShowFromTop(position);
+
+    for (int i = 0; i < levels.length; i++) {
+      levels[i] = new Level(levels.length - 1 - i, 8);
+    }
+  }
+
+  /**
+   * popups at TOP (and CENTER) grow down, popups at BOTTOM grow up
+   */
+  static boolean isShowFromTop(final Pos position) {
+    switch (position) {
+      case TOP_LEFT:
+      case TOP_RIGHT:
+      case CENTER: // center grows down
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @return the X position of the popups at the position, in the bounds (of the screen or of the application window)
+   */
+  static int getAnchorX(final Pos position, final Rectangle bounds, boolean isDesktop) {
+    // we use the screen that the mouse is currently on.
+    final int startX;
+    if (isDesktop) {
+      startX = (int) bounds.getX();
+    } else {
+      startX = 0;
+    }
+
+    final int screenWidth = (int) bounds.getWidth();
+
+    // determine location for the popup
+    // get anchorX
+    switch (position) {
+      case TOP_LEFT:
+      case BOTTOM_LEFT:
+        return MARGIN + startX;
+
+      case CENTER:
+        return startX + (screenWidth / 2) - NotifyCanvas.WIDTH / 2 - MARGIN / 2;
+
+      case TOP_RIGHT:
+      case BOTTOM_RIGHT:
+        return startX + screenWidth - NotifyCanvas.WIDTH - MARGIN;
+
+      default:
+        throw new RuntimeException("Unknown position. '" + position + "'");
+    }
+  }
+
+  /**
+   * @return the Y position of the first popup (of the default height) at the position, in the bounds (of the screen or of the application
+   * window)
+   */
+  static int getAnchorY(final Pos position, final Rectangle bounds, final boolean isDesktop) {
+    final int startY;
+    if (isDesktop) {
+      startY = (int) bounds.getY();
+    } else {
+      startY = 0;
+    }
+    final int screenHeight = (int) bounds.getHeight();
+
+    // get anchorY
+    switch (position) {
+      case TOP_LEFT:
+      case TOP_RIGHT:
+        return startY + MARGIN;
+
+      case CENTER:
+        return startY + (screenHeight / 2) - NotifyCanvas.HEIGHT / 2 - MARGIN / 2 - SPACER;
+
+      case BOTTOM_LEFT:
+      case BOTTOM_RIGHT:
+        if (isDesktop) {
+          return startY + screenHeight - NotifyCanvas.HEIGHT - MARGIN;
+        } else {
+          return startY + screenHeight - NotifyCanvas.HEIGHT - MARGIN - SPACER * 2;
+        }
+
+      default:
+        throw new RuntimeException("Unknown position. '" + position + "'");
+    }
+  }
+
+  /**
+   * have to adjust for offsets when the window-manager has a toolbar that consumes space and prevents overlap.
+   * <p>
+   * this is only done on the 2nd popup is added to the list
+   */
+  void calculateOffset(final Insets screenInsets) {
+    if (offsetY == 0) {
+      if (showFromTop) {
+        if (screenInsets.top > 0) {
+          offsetY = screenInsets.top - MARGIN;
+        }
+      } else {
+        if (screenInsets.bottom > 0) {
+          offsetY = screenInsets.bottom + MARGIN;
+        }
+      }
+    }
+  }
+
+  /**
+   * the screen insets may have changed, so the offset must be calculated again
+   */
+  void resetOffset() {
+    offsetY = 0;
+  }
+
+  int getOffsetY() {
+    return offsetY;
+  }
+
+  /**
+   * The space taken by whatever is before this stack, which every popup of the stack is moved by
+   */
+  void setStackOffset(final int stackOffset) {
+    this.stackOffset = stackOffset;
+  }
+
+  boolean isShowFromTop() {
+    return showFromTop;
+  }
+
+  /**
+   * popups at TOP grow down, popups at BOTTOM grow up. The bottom edge of the first popup at the BOTTOM is where the bottom edge of a
+   * popup of the default height would be.
+   *
+   * @return the Y position of the popup at the index
+   */
+  int getTargetY(final T look, final int index) {
+    int space = stackOffset;
+
+    if (index > 0) {
+      // have to adjust for offsets when the window-manager has a toolbar that consumes space and prevents overlap.
+      space += getSpaceBefore(look) + offsetY;
+    }
+
+    if (showFromTop) {
+      return look.anchorY + space;
+    } else {
+      return look.anchorY + NotifyCanvas.HEIGHT - look.height - space;
+    }
+  }
+
+  /**
+   * @return true if the popup at the index is past the maximum number of visible popups (0 means there is no limit)
+   */
+  static boolean isQueued(final int index, final int maxVisible) {
+    return maxVisible > 0 && index >= maxVisible;
+  }
+
+
+  int size() {
+    return popups.size();
+  }
+
+  /**
+   * Inserts the popup after every popup with the same (or higher) priority.
+   *
+   * @return the index of the popup
+   */
+  int add(final T popup) {
+    Level level = getLevel(popup);
+    if (level.nextSlot == level.capacity()) {
+      compact(level);
+    }
+
+    level.insert(popup);
+
+    int index = countBefore(level) + level.count - 1;
+    popups.add(index, popup);
+    return index;
+  }
+
+  /**
+   * @return the index the popup had, or -1 if it is not in the list
+   */
+  int remove(final StackEntry popup) {
+    int index = indexOf(popup);
+    if (index < 0) {
+      return -1;
+    }
+
+    getLevel(popup).remove(popup);
+    popups.remove(index);
+    return index;
+  }
+
+  /**
+   * The height of the popup changed.
+   *
+   * @return the index of the popup, or -1 if it is not in the list
+   */
+  int resize(final StackEntry popup) {
+    int index = indexOf(popup);
+    if (index >= 0) {
+      getLevel(popup).resize(popup);
+    }
+    return index;
+  }
+
+  /**
+   * @return the index of the popup, or -1 if it is not in the list
+   */
+  int indexOf(final StackEntry popup) {
+    int slot = popup.stackSlot;
+    if (slot < 0) {
+      return -1;
+    }
+
+    Level level = getLevel(popup);
+    int index = countBefore(level) + level.counts.sumBefore(slot);
+    if (index >= popups.size() || popups.get(index) != popup) {
+      return -1;
+    }
+    return index;
+  }
+
+  /**
+   * @return the space (height + spacer) taken by all of the popups before this one
+   */
+  int getSpaceBefore(final StackEntry popup) {
+    Level level = getLevel(popup);
+
+    int space = 0;
+    for (Level other : levels) {
+      if (other == level) {
+        break;
+      }
+      space += other.totalHeight;
+    }
+
+    return space + level.heights.sumBefore(popup.stackSlot);
+  }
+
+  /**
+   * @return the space (height + spacer) taken by the popups that are not queued
+   */
+  int getVisibleSpace(final int maxVisible) {
+    if (maxVisible > 0 && popups.size() > maxVisible) {
+      return getSpaceBefore(popups.get(maxVisible));
+    }
+
+    int space = 0;
+    for (Level level : levels) {
+      space += level.totalHeight;
+    }
+    return space;
+  }
+
+  Iterator<T> iterator() {
+    return popups.iterator();
+  }
+
+  T get(final int index) {
+    return popups.get(index);
+  }
+
+  private Level getLevel(final StackEntry popup) {
+    return levels[levels.length - 1 - popup.priority];
+  }
+
+  private int countBefore(final Level level) {
+    int count = 0;
+    for (Level other : levels) {
+      if (other == level) {
+        break;
+      }
+      count += other.count;
+    }
+    return count;
+  }
+
+  // the slots ran out, so the popups of the level are moved to the first slots (of a larger tree, if it is more than half full)
+  private void compact(final Level level) {
+    int capacity = level.capacity();
+    if (level.count * 2 > capacity) {
+      capacity *= 2;
+    }
+
+    level.allocate(capacity);
+    for (StackEntry look : popups) {
+      if (look.priority == level.priority) {
+        level.insert(look);
+      }
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import dorkbox.notify.Notify;
+import dorkbox.notify.NotifyServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Starts the notification server and talks to it with a local client: a single notification, a batch, an invalid request, and then
+ * enough notifications to fill the stack (which must be refused with 429).
+ */
+public
+class NotifyServerTest {
+
+  public static void main(String[] args) throws Exception {
+    NotifyServer.MAX_PENDING_PER_STACK = 8;
+    NotifyServer server = NotifyServer.start(0);
+    String base = "http://127.0.0.1:" + server.getPort();
+
+    int status = post(base + "/notify", "{\"title\":\"Servidor\",\"text\":\"Notificación individual\",\"icon\":\"" +
+                                        Notify.DIALOG_INFO + "\",\"position\":\"TOP_RIGHT\",\"hideAfter\":5000}");
+    check("single", status, 202);
+
+    StringBuilder batch = new StringBuilder("[");
+    for (int i = 0; i < 4; i++) {
+      if (i > 0) {
+        batch.append(',');
+      }
+      batch.append("{\"title\":\"Lote ").append(i).append("\",\"text\":\"Notificación en lote ").append(i)
+           .append("\",\"position\":\"BOTTOM_RIGHT\",\"hideAfter\":8000,\"dark\":true}");
+    }
+    batch.append(']');
+    check("batch", post(base + "/notify", batch.toString()), 202);
+
+    check("missing text", post(base + "/notify", "{\"title\":\"Sin texto\"}"), 400);
+    check("bad position", post(base + "/notify", "{\"title\":\"x\",\"text\":\"y\",\"position\":\"SIDEWAYS\"}"), 400);
+    check("bad json", post(base + "/notify", "{\"title\":"), 400);
+
+    // 4 are already showing in BOTTOM_RIGHT, so 5 more cannot fit
+    StringBuilder tooMany = new StringBuilder("[");
+    for (int i = 0; i < 5; i++) {
+      if (i > 0) {
+        tooMany.append(',');
+      }
+      tooMany.append("{\"title\":\"Lleno ").append(i).append("\",\"text\":\"No se debe mostrar\",\"position\":\"BOTTOM_RIGHT\"}");
+    }
+    tooMany.append(']');
+    check("full stack", post(base + "/notify", tooMany.toString()), 429);
+
+    System.err.println("Stats: " + get(base + "/stats"));
+
+    // wait for them to hide, after which the stack has room again
+    Thread.sleep(10000);
+    check("after hide", post(base + "/notify", tooMany.toString()), 202);
+    System.err.println("Stats: " + get(base + "/stats"));
+
+    Thread.sleep(3000);
+    server.stop();
+    System.exit(0);
+  }
+
+  private static void check(final String name, final int status, final int expected) {
+    if (status == expected) {
+      System.err.println(name + ": " + status);
+    } else {
+      throw new RuntimeException(name + ": expected " + expected + " but was " + status);
+    }
+  }
+
+  private static int post(final String url, final String json) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+
+    OutputStream outputStream = connection.getOutputStream();
+    try {
+      outputStream.write(json.getBytes("UTF-8"));
+    } finally {
+      outputStream.close();
+    }
+
+    int status = connection.getResponseCode();
+    connection.disconnect();
+    return status;
+  }
+
+  private static String get(final String url) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    InputStream inputStream = connection.getInputStream();
+    try {
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        body.write(buffer, 0, read);
+      }
+      return new String(body.toByteArray(), "UTF-8");
+    } finally {
+      inputStream.close();
+      connection.disconnect();
+    }
+  }
+}
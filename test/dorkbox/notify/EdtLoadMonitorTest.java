@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+/**
+ * Feeds frames to the load monitor (as the render loop does, at 30 frames per second), first with a spike of work to raise the degradation
+ * level, and then with normal frames, which must bring the level back to full quality.
+ * <p>
+ * Options are 'key=value' arguments:
+ * <pre>
+ * spikeFrames=10          frames that are over the threshold
+ * spikeMillis=200         work of each of those frames, in millis
+ * workMillis=2            work of each normal frame, in millis
+ * timeout=20000           how long to wait for each step, in millis
+ * </pre>
+ */
+public
+class EdtLoadMonitorTest {
+  // 30 frames per second, as the render loop
+  private static final long FRAME_MILLIS = 33L;
+
+  public static void main(String[] args) throws InterruptedException {
+    TestOptions options = new TestOptions(args);
+    int spikeFrames = options.getInt("spikeFrames", 10);
+    int spikeMillis = options.getInt("spikeMillis", 200);
+    int workMillis = options.getInt("workMillis", 2);
+    int timeout = options.getInt("timeout", 20000);
+    options.checkUnknown();
+
+    EdtLoadMonitor.start();
+
+    long start = System.currentTimeMillis();
+    Degradation worst = Degradation.FULL;
+
+    // the spike is repeated until a probe sees it
+    while (worst == Degradation.FULL && System.currentTimeMillis() - start < timeout) {
+      for (int i = 0; i < spikeFrames; i++) {
+        Thread.sleep(spikeMillis);
+        EdtLoadMonitor.frame(spikeMillis * 1000000L);
+      }
+      worst = EdtLoadMonitor.getLevel();
+    }
+
+    long degradedAt = System.currentTimeMillis();
+    System.out.println("degraded to " + worst + " after " + (degradedAt - start) + "ms");
+
+    // the frames are normal again (the time between them is the frame rate, which is not load)
+    while (EdtLoadMonitor.getLevel() != Degradation.FULL && System.currentTimeMillis() - degradedAt < timeout) {
+      Thread.sleep(FRAME_MILLIS);
+      EdtLoadMonitor.frame(workMillis * 1000000L);
+    }
+
+    Degradation recovered = EdtLoadMonitor.getLevel();
+    System.out.println("recovered to " + recovered + " after " + (System.currentTimeMillis() - degradedAt) + "ms");
+
+    EdtLoadMonitor.stop();
+
+    boolean failed = worst == Degradation.FULL || recovered != Degradation.FULL;
+    System.out.println(failed ? "FAILED" : "OK");
+    System.exit(failed ? 1 : 0);
+  }
+}
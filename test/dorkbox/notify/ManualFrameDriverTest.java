@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import dorkbox.util.ActionHandler;
+
+import javax.swing.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the whole lifetime (shown, queued, counted down, closed) of a stack of popups on a virtual clock, instead of in real time.
+ * <p>
+ * Options are 'key=value' arguments:
+ * <pre>
+ * count=100               notifications to show
+ * hideAfter=13000         hideAfter of every notification, in millis
+ * maxVisible=5            MAX_VISIBLE_PER_STACK (the rest are queued)
+ * frame=16                duration of a frame, in millis
+ * </pre>
+ */
+public
+class ManualFrameDriverTest {
+  public static void main(String[] args) throws InterruptedException, InvocationTargetException {
+    TestOptions options = new TestOptions(args);
+    int count = options.getInt("count", 100);
+    int hideAfter = options.getInt("hideAfter", 13000);
+    int maxVisible = options.getInt("maxVisible", 5);
+    int frameMillis = options.getInt("frame", 16);
+    options.checkUnknown();
+
+    Notify.MAX_VISIBLE_PER_STACK = maxVisible;
+
+    final ManualFrameDriver clock = new ManualFrameDriver();
+    //noinspection Convert2Lambda
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        LookAndFeel.setFrameDriver(clock);
+      }
+    });
+
+    final AtomicInteger closed = new AtomicInteger();
+    //noinspection Convert2Lambda
+    ActionHandler<Notify> onClose = new ActionHandler<Notify>() {
+      @Override
+      public void handle(final Notify value) {
+        closed.incrementAndGet();
+      }
+    };
+
+    List<Notify> notifications = new ArrayList<Notify>(count);
+    for (int i = 0; i < count; i++) {
+      notifications.add(Notify.create()
+                              .title("Notification " + i)
+                              .text("Closes after " + hideAfter + "ms of virtual time")
+                              .position(Pos.BOTTOM_RIGHT)
+                              .hideAfter(hideAfter)
+                              .onClose(onClose));
+    }
+
+    long start = System.nanoTime();
+    Notify.showAll(notifications);
+
+    // every popup has it's turn (queued popups don't count down), plus a second for the last ones to close
+    int visible = maxVisible > 0 ? maxVisible : count;
+    long virtualMillis = (long) hideAfter * ((count + visible - 1) / visible) + 1000L;
+
+    // a virtual clock must never be degraded by how long the (real time) steps take
+    final boolean[] degraded = new boolean[1];
+
+    final long frameNanos = frameMillis * 1000000L;
+    for (long elapsed = 0; elapsed < virtualMillis && closed.get() < count; elapsed += 1000) {
+      // a second of frames at a time, on the EDT (so closed popups are removed before the next frame)
+      //noinspection Convert2Lambda
+      SwingUtilities.invokeAndWait(new Runnable() {
+        @Override
+        public void run() {
+          clock.advance(1000000000L, frameNanos);
+          degraded[0] |= EdtLoadMonitor.isRunning() || Notify.getDegradation() != Degradation.FULL;
+        }
+      });
+    }
+
+    // the close callbacks are dispatched on the EDT
+    //noinspection Convert2Lambda
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+
+    double seconds = (System.nanoTime() - start) / 1.0E9D;
+    System.out.println(closed.get() + " of " + count + " notifications closed after " + clock.getNanoTime() / 1000000L +
+                       "ms of virtual time (" + clock.getFrames() + " frames), in " + String.format("%.2f", seconds) + "s of real time");
+
+    System.out.println("load monitor ran on the virtual clock: " + degraded[0]);
+
+    System.exit(closed.get() == count && !degraded[0] ? 0 : 1);
+  }
+}
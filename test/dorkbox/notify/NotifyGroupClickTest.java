@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import dorkbox.util.ActionHandler;
+
+import javax.swing.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collapses a group of notifications into it's summary, and clicks the summary while the callbacks run on a thread that is not the swing
+ * EDT. Every member must be shown again, and none of them may be closed by the summary closing.
+ * <p>
+ * To run headless (for example on a build server), use Xvfb:
+ * <pre>
+ * xvfb-run -s "-screen 0 1920x1080x24" java -cp ... dorkbox.notify.NotifyGroupClickTest
+ * </pre>
+ */
+public
+class NotifyGroupClickTest {
+  private static final String GROUP = "click-test";
+
+  public static void main(String[] args) throws InterruptedException, InvocationTargetException {
+    Notify.INSTANT_LAYOUT = true;
+    Notify.GROUP_THRESHOLD = 5;
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    NotifyCallbacks.runOn(executor);
+
+    final JFrame frame = new JFrame("Group click test");
+    frame.setSize(600, 800);
+    frame.setVisible(true);
+
+    final AtomicInteger closed = new AtomicInteger();
+    //noinspection Convert2Lambda
+    ActionHandler<Notify> onClose = new ActionHandler<Notify>() {
+      @Override
+      public void handle(final Notify value) {
+        closed.incrementAndGet();
+      }
+    };
+
+    final List<Notify> members = new ArrayList<Notify>();
+    for (int i = 0; i <= Notify.GROUP_THRESHOLD; i++) {
+      Notify notify = Notify.create()
+                            .title("Member " + i)
+                            .text("Collapsed into the summary")
+                            .group(GROUP)
+                            .onClose(onClose)
+                            .attach(frame);
+      notify.show();
+      members.add(notify);
+    }
+
+    // the members are only folded into the summary (they are not closed), so none of their callbacks may have run. The hidden popups
+    // are closed on the EDT, and any callbacks from that would be queued on the executor.
+    //noinspection Convert2Lambda
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+    try {
+      //noinspection Convert2Lambda
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {
+        }
+      }).get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e);
+    }
+    int closedByCollapse = closed.get();
+
+    final boolean[] results = new boolean[3];
+    //noinspection Convert2Lambda
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        Notify summary = NotifyGroup.getSummary(GROUP);
+        results[0] = summary != null && NotifyGroup.getCollapsedCount(GROUP) == members.size();
+
+        if (summary != null) {
+          // anywhere but the close button
+          summary.look.onClick(20, NotifyCanvas.HEIGHT - 20);
+        }
+      }
+    });
+
+    // the user callbacks (and anything they queue on the EDT) are finished
+    executor.shutdown();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+
+    //noinspection Convert2Lambda
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        results[1] = NotifyGroup.getSummary(GROUP) == null && NotifyGroup.getCollapsedCount(GROUP) == 0;
+
+        boolean shown = true;
+        for (Notify member : members) {
+          shown &= member.look != null;
+        }
+        results[2] = shown;
+      }
+    });
+
+    System.out.println("collapsed into the summary: " + results[0]);
+    System.out.println("members closed by collapsing: " + closedByCollapse);
+    System.out.println("summary expanded: " + results[1]);
+    System.out.println("members shown again: " + results[2]);
+    System.out.println("members closed: " + closed.get());
+
+    boolean failed = !results[0] || !results[1] || !results[2] || closedByCollapse != 0 || closed.get() != 0;
+    System.out.println(failed ? "FAILED" : "OK");
+
+    //noinspection Convert2Lambda
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        frame.dispose();
+      }
+    });
+    System.exit(failed ? 1 : 0);
+  }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import dorkbox.util.ActionHandlerLong;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Drives Notify with synthetic (or recorded) traffic, and reports how much of it a session can absorb.
+ * <p>
+ * Options are 'key=value' arguments:
+ * <pre>
+ * rate=20                          notifications per second
+ * burst=1                          notifications shown back-to-back on every tick
+ * duration=30                      seconds to generate traffic for
+ * positions=BOTTOM_RIGHT:3,TOP_LEFT:1    position mix (weights)
+ * attach=0.25                      fraction of notifications attached to a JFrame instead of the desktop
+ * hideAfter=2000-8000              hideAfter range in millis (uniformly distributed). 0 means they never hide.
+ * shake=0.1                        fraction of notifications that shake
+ * seed=1                           random seed, so runs can be repeated
+ * trace=file.csv                   replay a trace instead. Each line is: offsetMillis,position,attach,hideAfterMillis,shake
+ * history=directory                replay a notification history log (see NotifyHistory) instead
+ * warmup=false                     call Notify.warmup() (and wait for it) before the first notification, to compare the first show
+ * </pre>
+ * To run headless (for example on a build server), use Xvfb:
+ * <pre>
+ * xvfb-run -s "-screen 0 1920x1080x24" java -cp ... dorkbox.notify.NotifyLoadTest rate=50 duration=60
+ * </pre>
+ */
+public
+class NotifyLoadTest {
+
+  private static final
+  class Event {
+    final long offsetNanos;
+    final Pos position;
+    final boolean attach;
+    final int hideAfter;
+    final boolean shake;
+    final String title;
+    final String text;
+
+    Event(final long offsetNanos, final Pos position, final boolean attach, final int hideAfter, final boolean shake,
+          final String title, final String text) {
+      this.offsetNanos = offsetNanos;
+      this.position = position;
+      this.attach = attach;
+      this.hideAfter = hideAfter;
+      this.shake = shake;
+      this.title = title;
+      this.text = text;
+    }
+  }
+
+  // a growable list of longs, so that recording a sample does not box
+  private static final
+  class Samples {
+    private long[] values = new long[1024];
+    private int size = 0;
+
+    synchronized void add(final long value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    synchronized String percentiles(final double scale, final String unit) {
+      if (size == 0) {
+        return "no samples";
+      }
+
+      long[] sorted = Arrays.copyOf(values, size);
+      Arrays.sort(sorted);
+
+      return String.format("p50=%.2f%s p90=%.2f%s p99=%.2f%s max=%.2f%s (%d samples)",
+                           sorted[index(0.50)] / scale, unit,
+                           sorted[index(0.90)] / scale, unit,
+                           sorted[index(0.99)] / scale, unit,
+                           sorted[size - 1] / scale, unit,
+                           size);
+    }
+
+    private int index(final double percentile) {
+      return Math.min(size - 1, (int) Math.ceil(percentile * size) - 1);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    TestOptions options = new TestOptions(args);
+    String rate = options.get("rate", "20");
+    String burst = options.get("burst", "1");
+    String duration = options.get("duration", "30");
+    String positions = options.get("positions", "BOTTOM_RIGHT:3,TOP_LEFT:1");
+    String attach = options.get("attach", "0.25");
+    String hideAfter = options.get("hideAfter", "2000-8000");
+    String shake = options.get("shake", "0.1");
+    String seed = options.get("seed", "1");
+    String trace = options.get("trace", null);
+    String history = options.get("history", null);
+    String warmup = options.get("warmup", "false");
+    options.checkUnknown();
+
+    final List<Event> events;
+    if (trace != null) {
+      events = readTrace(new File(trace));
+    } else if (history != null) {
+      events = readHistory(new File(history));
+    } else {
+      events = generate(Double.parseDouble(rate), Integer.parseInt(burst), Double.parseDouble(duration), positions,
+                        Double.parseDouble(attach), hideAfter, Double.parseDouble(shake), Long.parseLong(seed));
+    }
+
+    run(events, Boolean.parseBoolean(warmup));
+    System.exit(0);
+  }
+
+  private static List<Event> generate(final double rate, final int burst, final double durationInSeconds, final String positions,
+                                      final double attachFraction, final String hideAfter, final double shakeFraction,
+                                      final long seed) {
+    Random random = new Random(seed);
+
+    // position mix
+    String[] mix = positions.split(",");
+    Pos[] mixPositions = new Pos[mix.length];
+    int[] mixWeights = new int[mix.length];
+    int totalWeight = 0;
+    for (int i = 0; i < mix.length; i++) {
+      String[] parts = mix[i].split(":");
+      mixPositions[i] = Pos.valueOf(parts[0].trim());
+      mixWeights[i] = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+      totalWeight += mixWeights[i];
+    }
+
+    int hideMin;
+    int hideMax;
+    int dash = hideAfter.indexOf('-');
+    if (dash > 0) {
+      hideMin = Integer.parseInt(hideAfter.substring(0, dash));
+      hideMax = Integer.parseInt(hideAfter.substring(dash + 1));
+    } else {
+      hideMin = hideMax = Integer.parseInt(hideAfter);
+    }
+
+    long tickNanos = (long) (1.0E9D * burst / rate);
+    long endNanos = (long) (durationInSeconds * 1.0E9D);
+
+    List<Event> events = new ArrayList<Event>();
+    int count = 0;
+    for (long offset = 0; offset < endNanos; offset += tickNanos) {
+      for (int i = 0; i < burst; i++) {
+        int pick = random.nextInt(totalWeight);
+        Pos position = mixPositions[0];
+        for (int j = 0; j < mixWeights.length; j++) {
+          if (pick < mixWeights[j]) {
+            position = mixPositions[j];
+            break;
+          }
+          pick -= mixWeights[j];
+        }
+
+        int hide = hideMin + (hideMax > hideMin ? random.nextInt(hideMax - hideMin + 1) : 0);
+
+        events.add(new Event(offset, position, random.nextDouble() < attachFraction, hide, random.nextDouble() < shakeFraction,
+                             "Carga " + count, "Notificación sintética " + count));
+        count++;
+      }
+    }
+
+    return events;
+  }
+
+  private static List<Event> readTrace(final File file) throws IOException {
+    List<Event> events = new ArrayList<Event>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+
+    try {
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+
+        String[] parts = line.split(",");
+        if (parts.length < 5) {
+          throw new IOException("Line " + lineNumber + " must be: offsetMillis,position,attach,hideAfterMillis,shake");
+        }
+
+        events.add(new Event(Long.parseLong(parts[0].trim()) * 1000000L,
+                             Pos.valueOf(parts[1].trim()),
+                             Boolean.parseBoolean(parts[2].trim()),
+                             Integer.parseInt(parts[3].trim()),
+                             Boolean.parseBoolean(parts[4].trim()),
+                             "Traza " + lineNumber,
+                             "Notificación de la traza, línea " + lineNumber));
+      }
+    } finally {
+      reader.close();
+    }
+
+    return events;
+  }
+
+  private static List<Event> readHistory(final File directory) throws Exception {
+    NotifyHistory history = NotifyHistory.open(directory);
+    List<NotifyHistory.Entry> entries = history.getRange(0, Long.MAX_VALUE);
+    history.close();
+
+    List<Event> events = new ArrayList<Event>(entries.size());
+    if (entries.isEmpty()) {
+      return events;
+    }
+
+    long start = entries.get(0).getTimestamp();
+    for (NotifyHistory.Entry entry : entries) {
+      events.add(new Event((entry.getTimestamp() - start) * 1000000L, entry.getPosition(), false, 5000, false,
+                           entry.getTitle(), entry.getText()));
+    }
+
+    return events;
+  }
+
+  private static void run(final List<Event> events, final boolean warmup) throws Exception {
+    if (warmup) {
+      long warmupStart = System.nanoTime();
+      Notify.warmup().join();
+      System.err.println(String.format("Warmup:       %.2fms", (System.nanoTime() - warmupStart) / 1.0E6D));
+    }
+
+    final JFrame frame = new JFrame("Carga");
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        frame.setSize(900, 600);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setVisible(true);
+      }
+    });
+
+    final Samples showLatency = new Samples();
+    final Samples frameWork = new Samples();
+
+    // the work of every frame (animating and painting the popups), as measured by the load monitor. Nothing is measured while there
+    // are no popups, or when Notify.DEGRADE_LATENCY_MILLIS is 0
+    //noinspection Convert2Lambda
+    EdtLoadMonitor.setFrameListener(new ActionHandlerLong() {
+      @Override
+      public void handle(final long workInNanos) {
+        frameWork.add(workInNanos);
+      }
+    });
+
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    System.gc();
+    long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+    System.err.println("Showing " + events.size() + " notifications");
+
+    long firstShow = -1;
+    int maxWindows = 0;
+    long start = System.nanoTime();
+
+    try {
+      for (Event event : events) {
+        long wait = start + event.offsetNanos - System.nanoTime();
+        if (wait > 0) {
+          Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+        }
+
+        Notify notify = Notify.create()
+                              .title(event.title)
+                              .text(event.text)
+                              .position(event.position)
+                              .hideAfter(event.hideAfter);
+        if (event.attach) {
+          notify.attach(frame);
+        }
+        if (event.shake) {
+          notify.shake(1300, 4);
+        }
+
+        long showStart = System.nanoTime();
+        notify.show();
+        long latency = System.nanoTime() - showStart;
+
+        if (firstShow < 0) {
+          firstShow = latency;
+        } else {
+          showLatency.add(latency);
+        }
+
+        maxWindows = Math.max(maxWindows, countWindows());
+      }
+    } finally {
+      // the run is over, the popups that are still showing are not part of it
+      EdtLoadMonitor.setFrameListener(null);
+    }
+
+    double elapsed = (System.nanoTime() - start) / 1.0E9D;
+
+    System.gc();
+    long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+    System.err.println(String.format("Achieved:     %.1f notifications/sec (%d in %.2f sec)", events.size() / elapsed, events.size(), elapsed));
+    System.err.println(String.format("First show:   %.2fms", firstShow / 1.0E6D));
+    System.err.println("Show latency: " + showLatency.percentiles(1.0E6D, "ms"));
+    System.err.println("Frame work:   " + frameWork.percentiles(1.0E6D, "ms"));
+    System.err.println(String.format("Heap growth:  %.2f MB", (heapAfter - heapBefore) / (1024.0D * 1024.0D)));
+    System.err.println("Windows:      " + countWindows() + " now, " + maxWindows + " at most");
+  }
+
+  // each desktop notification is a native window
+  private static int countWindows() {
+    int count = 0;
+    for (Window window : Window.getWindows()) {
+      if (window.isDisplayable()) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import javax.swing.*;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opens and closes thousands of application windows, each with notifications attached to it, and checks that nothing is left behind: no
+ * stacks, no window registrations, and every window can be garbage collected.
+ * <p>
+ * A third of the windows close their notifications first, a third are disposed while their notifications are still showing, and a third
+ * are only hidden (as closing a window does with the default HIDE_ON_CLOSE) while their notifications never hide by themselves. The hidden
+ * windows are only disposed after the stacks and registrations are counted, so that the window system lets go of them as well.
+ * <p>
+ * Options are 'key=value' arguments:
+ * <pre>
+ * frames=2000             windows to open and close
+ * popups=3                notifications attached to each window
+ * </pre>
+ * To run headless (for example on a build server), use Xvfb:
+ * <pre>
+ * xvfb-run -s "-screen 0 1920x1080x24" java -cp ... dorkbox.notify.PopupRegistryLeakTest
+ * </pre>
+ */
+public
+class PopupRegistryLeakTest {
+  public static void main(String[] args) throws InterruptedException, InvocationTargetException {
+    TestOptions options = new TestOptions(args);
+    int frameCount = options.getInt("frames", 2000);
+    int popupCount = options.getInt("popups", 3);
+    options.checkUnknown();
+
+    // nothing has to animate for this
+    Notify.INSTANT_LAYOUT = true;
+
+    final List<WeakReference<JFrame>> references = new ArrayList<WeakReference<JFrame>>(frameCount);
+    long start = System.nanoTime();
+
+    final List<JFrame> hidden = new ArrayList<JFrame>();
+
+    for (int i = 0; i < frameCount; i++) {
+      final int mode = i % 3;
+
+      // every window has a different name, so each one has it's own stacks
+      final JFrame frame = new JFrame("Leak test " + i);
+      frame.setName("leak-" + i);
+      frame.setSize(400, 300);
+      frame.setVisible(true);
+
+      final List<Notify> notifications = new ArrayList<Notify>(popupCount);
+      for (int j = 0; j < popupCount; j++) {
+        Notify notify = Notify.create()
+                              .title("Window " + i)
+                              .text("Notification " + j)
+                              .position(j % 2 == 0 ? Pos.TOP_RIGHT : Pos.BOTTOM_LEFT)
+                              .hideAfter(0)
+                              .attach(frame);
+        notify.show();
+        notifications.add(notify);
+      }
+
+      //noinspection Convert2Lambda
+      SwingUtilities.invokeAndWait(new Runnable() {
+        @Override
+        public void run() {
+          if (mode == 0) {
+            for (Notify notify : notifications) {
+              notify.close();
+            }
+          }
+
+          if (mode == 2) {
+            frame.setVisible(false);
+          } else {
+            frame.dispose();
+          }
+        }
+      });
+
+      if (mode == 2) {
+        hidden.add(frame);
+      }
+
+      references.add(new WeakReference<JFrame>(frame));
+    }
+
+    // the closes are queued on the EDT (after the window closed or hidden event, for the windows that were not closed first)
+    for (int i = 0; i < 3; i++) {
+      //noinspection Convert2Lambda
+      SwingUtilities.invokeAndWait(new Runnable() {
+        @Override
+        public void run() {
+        }
+      });
+    }
+
+    final int[] counts = new int[2];
+    //noinspection Convert2Lambda
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        counts[0] = LookAndFeel.getStackCount();
+        counts[1] = FrameRelayout.getFrameCount();
+
+        for (JFrame frame : hidden) {
+          frame.dispose();
+        }
+      }
+    });
+    hidden.clear();
+
+    int alive = 0;
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      Thread.sleep(100);
+
+      alive = 0;
+      for (WeakReference<JFrame> reference : references) {
+        if (reference.get() != null) {
+          alive++;
+        }
+      }
+      if (alive == 0) {
+        break;
+      }
+    }
+
+    double seconds = (System.nanoTime() - start) / 1.0E9D;
+    System.out.println(frameCount + " windows (" + frameCount * popupCount + " notifications) in " + String.format("%.1f", seconds) + "s");
+    System.out.println("stacks left: " + counts[0]);
+    System.out.println("windows registered: " + counts[1]);
+    System.out.println("windows not collected: " + alive);
+
+    boolean leaked = counts[0] != 0 || counts[1] != 0 || alive != 0;
+    System.out.println(leaked ? "LEAK" : "OK");
+    System.exit(leaked ? 1 : 0);
+  }
+}
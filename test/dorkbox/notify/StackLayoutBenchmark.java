@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Pushes add/remove events through the stacking rules (see {@link StackLayout}) for stacks of different sizes, without any windows (so
+ * it runs without a display), and reports the cost per event.
+ * <p>
+ * Every event removes a random popup and adds a new one (of random priority and height), so the size of the stack stays the same.
+ * "update" is the cost of the change itself (plus the position of the popup that changed), and "layout" also includes the position of
+ * every popup that is displaced by it (which is what is moved on the screen).
+ * <p>
+ * Options are 'key=value' arguments:
+ * <pre>
+ * events=10000                add/remove events per stack size
+ * sizes=1,10,100,1000,10000   stack sizes
+ * rounds=5                    rounds per stack size (the first one is a warmup, and is not reported)
+ * seed=1                      random seed, so runs can be repeated
+ * </pre>
+ */
+public
+class StackLayoutBenchmark {
+  private static final Rectangle SCREEN = new Rectangle(0, 0, 1920, 1080);
+  private static final Insets INSETS = new Insets(0, 0, 40, 0);
+
+  // so the JIT can't remove the layout
+  private static long sink = 0;
+
+  public static void main(String[] args) {
+    TestOptions options = new TestOptions(args);
+    int events = options.getInt("events", 10000);
+    String[] split = options.get("sizes", "1,10,100,1000,10000").split(",");
+    int rounds = options.getInt("rounds", 5);
+    long seed = options.getLong("seed", 1L);
+    options.checkUnknown();
+
+    int[] sizes = new int[split.length];
+    for (int i = 0; i < split.length; i++) {
+      sizes[i] = Integer.parseInt(split[i].trim());
+    }
+
+    System.out.println(String.format("%8s %8s %14s %14s", "size", "events", "update ns/ev", "layout ns/ev"));
+
+    for (int size : sizes) {
+      long update = Long.MAX_VALUE;
+      long layout = Long.MAX_VALUE;
+
+      for (int round = 0; round < rounds; round++) {
+        long updateNanos = run(size, events, seed + round, false);
+        long layoutNanos = run(size, events, seed + round, true);
+
+        if (round > 0 || rounds == 1) {
+          update = Math.min(update, updateNanos);
+          layout = Math.min(layout, layoutNanos);
+        }
+      }
+
+      System.out.println(String.format("%8d %8d %14.1f %14.1f", size, events, update / (double) events, layout / (double) events));
+    }
+
+    if (sink == 42) {
+      System.out.println();
+    }
+  }
+
+  private static long run(final int size, final int events, final long seed, final boolean layout) {
+    Random random = new Random(seed);
+    Priority[] priorities = Priority.values();
+
+    StackLayout<StackEntry> stack = new StackLayout<StackEntry>(Pos.BOTTOM_RIGHT);
+    int anchorX = StackLayout.getAnchorX(Pos.BOTTOM_RIGHT, SCREEN, true);
+    int anchorY = StackLayout.getAnchorY(Pos.BOTTOM_RIGHT, SCREEN, true);
+
+    List<StackEntry> entries = new ArrayList<StackEntry>(size);
+    for (int i = 0; i < size; i++) {
+      StackEntry entry = newEntry(random, priorities, anchorX, anchorY);
+      entries.add(entry);
+      stack.add(entry);
+    }
+    stack.calculateOffset(INSETS);
+
+    // created before timing, so only the layout is measured
+    StackEntry[] added = new StackEntry[events];
+    int[] removed = new int[events];
+    for (int i = 0; i < events; i++) {
+      added[i] = newEntry(random, priorities, anchorX, anchorY);
+      removed[i] = random.nextInt(size);
+    }
+
+    long total = 0;
+    long start = System.nanoTime();
+
+    for (int i = 0; i < events; i++) {
+      StackEntry entry = entries.get(removed[i]);
+      int index = stack.remove(entry);
+      if (layout) {
+        total += relayout(stack, index);
+      }
+
+      entry = added[i];
+      entries.set(removed[i], entry);
+      index = stack.add(entry);
+      if (layout) {
+        total += relayout(stack, index);
+      } else {
+        total += stack.getTargetY(entry, index);
+      }
+    }
+
+    long nanos = System.nanoTime() - start;
+    sink += total;
+    return nanos;
+  }
+
+  // the positions of every popup displaced by a change at the index, like LookAndFeel.layoutStack
+  private static long relayout(final StackLayout<StackEntry> stack, final int fromIndex) {
+    long total = 0;
+    for (int index = fromIndex; index < stack.size(); index++) {
+      total += stack.getTargetY(stack.get(index), index);
+    }
+    return total;
+  }
+
+  private static StackEntry newEntry(final Random random, final Priority[] priorities, final int anchorX, final int anchorY) {
+    StackEntry entry = new StackEntry(priorities[random.nextInt(priorities.length)].ordinal(), NotifyCanvas.HEIGHT + random.nextInt(3) * 20);
+    entry.anchorX = anchorX;
+    entry.anchorY = anchorY;
+    return entry;
+  }
+}
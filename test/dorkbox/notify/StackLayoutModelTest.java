@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Pushes random add/remove/resize events through the stacking rules (see {@link StackLayout}), without any windows (so it runs without a
+ * display), and after every event compares the order, the index and the space before every popup, and which popups are queued, with a
+ * naive list (that is sorted by priority, and then by arrival).
+ * <p>
+ * Options are 'key=value' arguments:
+ * <pre>
+ * events=20000            add/remove/resize events
+ * maxSize=200             the most popups in the stack
+ * maxVisible=5            the most visible popups, the rest are queued
+ * seed=1                  random seed, so runs can be repeated
+ * </pre>
+ */
+public
+class StackLayoutModelTest {
+  public static void main(String[] args) {
+    TestOptions options = new TestOptions(args);
+    int events = options.getInt("events", 20000);
+    int maxSize = options.getInt("maxSize", 200);
+    int maxVisible = options.getInt("maxVisible", 5);
+    long seed = options.getLong("seed", 1L);
+    options.checkUnknown();
+
+    Random random = new Random(seed);
+    Priority[] priorities = Priority.values();
+
+    StackLayout<StackEntry> stack = new StackLayout<StackEntry>(Pos.BOTTOM_RIGHT);
+    List<StackEntry> naive = new ArrayList<StackEntry>();
+
+    int adds = 0;
+    int removes = 0;
+    int resizes = 0;
+
+    for (int event = 0; event < events; event++) {
+      int action = random.nextInt(3);
+
+      if (naive.isEmpty() || (action == 0 && naive.size() < maxSize)) {
+        StackEntry entry = new StackEntry(priorities[random.nextInt(priorities.length)].ordinal(),
+                                          NotifyCanvas.HEIGHT + random.nextInt(4) * 20);
+
+        // after every popup with the same (or higher) priority
+        int expected = 0;
+        while (expected < naive.size() && naive.get(expected).priority >= entry.priority) {
+          expected++;
+        }
+        naive.add(expected, entry);
+
+        check(event, "add", stack.add(entry), expected);
+        adds++;
+      } else if (action == 1) {
+        int expected = random.nextInt(naive.size());
+        StackEntry entry = naive.remove(expected);
+
+        check(event, "remove", stack.remove(entry), expected);
+        check(event, "remove again", stack.remove(entry), -1);
+        check(event, "indexOf removed", stack.indexOf(entry), -1);
+        removes++;
+      } else {
+        int expected = random.nextInt(naive.size());
+        StackEntry entry = naive.get(expected);
+        entry.height = NotifyCanvas.HEIGHT + random.nextInt(4) * 20;
+
+        check(event, "resize", stack.resize(entry), expected);
+        resizes++;
+      }
+
+      compare(event, stack, naive, maxVisible);
+    }
+
+    System.err.println("Passed: " + adds + " adds, " + removes + " removes, " + resizes + " resizes (" + naive.size() + " popups left)");
+  }
+
+  private static void compare(final int event, final StackLayout<StackEntry> stack, final List<StackEntry> naive, final int maxVisible) {
+    check(event, "size", stack.size(), naive.size());
+
+    int space = 0;
+    int visibleSpace = 0;
+    for (int index = 0; index < naive.size(); index++) {
+      StackEntry entry = naive.get(index);
+
+      if (stack.get(index) != entry) {
+        throw new IllegalStateException("Event " + event + ": the popup at " + index + " is out of order");
+      }
+      check(event, "indexOf", stack.indexOf(entry), index);
+      check(event, "getSpaceBefore", stack.getSpaceBefore(entry), space);
+
+      space += entry.height + StackLayout.SPACER;
+      if (!StackLayout.isQueued(index, maxVisible)) {
+        visibleSpace = space;
+      }
+    }
+
+    check(event, "getVisibleSpace", stack.getVisibleSpace(maxVisible), visibleSpace);
+  }
+
+  private static void check(final int event, final String what, final int actual, final int expected) {
+    if (actual != expected) {
+      throw new IllegalStateException("Event " + event + ": " + what + " is " + actual + ", but should be " + expected);
+    }
+  }
+}
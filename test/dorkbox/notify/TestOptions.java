@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.notify;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The 'key=value' options of the tests. Each option is read (with it's default) by the test, and then {@link #checkUnknown()} fails on
+ * any option that the test didn't read.
+ */
+final
+class TestOptions {
+  private final Map<String, String> values = new HashMap<String, String>();
+
+  TestOptions(final String[] args) {
+    for (String arg : args) {
+      int index = arg.indexOf('=');
+      if (index < 0) {
+        throw new IllegalArgumentException("Options must be 'key=value', not '" + arg + "'");
+      }
+
+      values.put(arg.substring(0, index), arg.substring(index + 1));
+    }
+  }
+
+  String get(final String key, final String defaultValue) {
+    String value = values.remove(key);
+    if (value == null) {
+      return defaultValue;
+    }
+    return value;
+  }
+
+  int getInt(final String key, final int defaultValue) {
+    String value = get(key, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    return Integer.parseInt(value.trim());
+  }
+
+  long getLong(final String key, final long defaultValue) {
+    String value = get(key, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    return Long.parseLong(value.trim());
+  }
+
+  /**
+   * @throws IllegalArgumentException if there is an option that was not read
+   */
+  void checkUnknown() {
+    if (!values.isEmpty()) {
+      throw new IllegalArgumentException("Unknown option '" + values.keySet().iterator().next() + "'");
+    }
+  }
+}